@@ -0,0 +1,144 @@
+package jmh;
+
+import com.indeed.util.mmap.MMapBuffer;
+import io.github.jbellis.jvector.disk.SimpleMappedReader;
+import jvector.MMapReader;
+import jvector.MemorySegmentReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads of one vector at a random position of a memory-mapped file of big-endian floats,
+ * the layout of the vectors inlined in the JVector on-disk graph.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--enable-preview"})
+@State(Scope.Thread)
+public class MMapReaderBench {
+    private static final int OFFSETS = 1024;
+
+    @Param({"128", "960"})
+    int dimension;
+
+    @Param({"100000"})
+    int count;
+
+    private Path file;
+    private MMapBuffer buffer;
+    private MMapReader reader;
+    private SimpleMappedReader simpleReader;
+    private MemorySegmentReader.Supplier segmentSupplier;
+    private MemorySegmentReader segmentReader;
+    private long[] offsets;
+    private float[] floats;
+    private ByteBuffer bytes;
+    private int next;
+
+    @Setup
+    public void setup() throws Exception {
+        var random = new Random(Vectors.SEED);
+        file = Files.createTempFile("jmh-vectors", ".bin");
+        try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            for (long i = 0; i < (long) count * dimension; i++) {
+                out.writeFloat(random.nextFloat());
+            }
+        }
+
+        buffer = new MMapBuffer(file, FileChannel.MapMode.READ_ONLY, ByteOrder.BIG_ENDIAN);
+        reader = new MMapReader(buffer);
+        simpleReader = new SimpleMappedReader(file);
+        segmentSupplier = new MemorySegmentReader.Supplier(file);
+        segmentReader = (MemorySegmentReader) segmentSupplier.get();
+
+        offsets = new long[OFFSETS];
+        for (int i = 0; i < OFFSETS; i++) {
+            offsets[i] = (long) random.nextInt(count) * dimension * Float.BYTES;
+        }
+        floats = new float[dimension];
+        bytes = ByteBuffer.allocate(dimension * Float.BYTES).order(ByteOrder.BIG_ENDIAN);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        simpleReader.close();
+        segmentSupplier.close();
+        buffer.close();
+        Files.delete(file);
+    }
+
+    private long nextOffset() {
+        return offsets[next++ & (OFFSETS - 1)];
+    }
+
+    @Benchmark
+    public float[] readFullyFloats() {
+        reader.seek(nextOffset());
+        reader.readFully(floats);
+        return floats;
+    }
+
+    @Benchmark
+    public float[] readFullyByteBuffer() {
+        reader.seek(nextOffset());
+        bytes.clear();
+        reader.readFully(bytes);
+        bytes.flip();
+        bytes.asFloatBuffer().get(floats);
+        return floats;
+    }
+
+    @Benchmark
+    public float[] readFloatLoop() throws Exception {
+        reader.seek(nextOffset());
+        for (int i = 0; i < floats.length; i++) {
+            floats[i] = reader.readFloat();
+        }
+        return floats;
+    }
+
+    @Benchmark
+    public float[] simpleMappedReader() throws Exception {
+        simpleReader.seek(nextOffset());
+        simpleReader.readFully(floats);
+        return floats;
+    }
+
+    @Benchmark
+    public float[] segmentReadFully() {
+        segmentReader.seek(nextOffset());
+        segmentReader.readFully(floats);
+        return floats;
+    }
+
+    @Benchmark
+    public float[] segmentReadFloatLoop() {
+        segmentReader.seek(nextOffset());
+        for (int i = 0; i < floats.length; i++) {
+            floats[i] = segmentReader.readFloat();
+        }
+        return floats;
+    }
+}
@@ -0,0 +1,166 @@
+package jmh;
+
+import index.Index;
+import io.github.jbellis.jvector.vector.VectorizationProvider;
+import io.github.jbellis.jvector.vector.types.VectorFloat;
+import jvector.DataSetJVector;
+import jvector.Hdf5Loader;
+import jvector.VectorStoreValues;
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import util.Config;
+import util.DataSetLucene;
+import util.DataSetVector;
+import util.VectorStore;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link Index.Querier#query} of both providers on a small index, built once per fork in a temporary directory.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--enable-preview", "--add-modules", "jdk.incubator.vector"})
+public class QuerierBench {
+
+    @State(Scope.Benchmark)
+    public static class IndexState {
+        @Param({"lucene", "jvector"})
+        String provider;
+
+        /**
+         * hdf5 dataset to index, empty for {@code size} random vectors of the given dimension
+         */
+        @Param({""})
+        String dataset;
+
+        @Param({"10000"})
+        int size;
+
+        @Param({"128"})
+        int dimension;
+
+        @Param({"50"})
+        int numCandidates;
+
+        @Param({"10"})
+        int k;
+
+        Index.Querier querier;
+        Object[] queries;
+        private Path indexesPath;
+
+        @Setup(Level.Trial)
+        public void setup() throws Exception {
+            var data = dataset.isEmpty()
+                    ? randomDataSet()
+                    : DataSetVector.load(provider, Path.of(Hdf5Loader.HDF5_DIR), dataset);
+            queries = queries(data);
+
+            var build = provider.equals("lucene")
+                    ? Map.of("maxConn", "16", "beamWidth", "100", "forceMerge", "0")
+                    : Map.of("M", "16", "beamWidth", "100", "neighborOverflow", "1.2", "alpha", "1.2");
+            var runtime = Map.<String, String>of();
+            indexesPath = Files.createTempDirectory("jmh-indexes");
+            try (var builder = Index.Builder.fromParameters(
+                    data, indexesPath, new Config.BuildSpec(dataset, provider, "", build, runtime))) {
+                builder.build();
+            }
+            querier = Index.Querier.fromParameters(
+                    data, indexesPath, provider, build, Map.of("numCandidates", String.valueOf(numCandidates)));
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws Exception {
+            querier.close();
+            FileUtils.deleteDirectory(indexesPath.toFile());
+        }
+
+        private DataSetVector randomDataSet() {
+            var random = new Random(Vectors.SEED);
+            var base = Vectors.random(size, dimension, random);
+            var queries = Vectors.random(1000, dimension, random);
+            if (provider.equals("lucene")) {
+                return new DataSetLucene(
+                        "random", DataSetVector.SimilarityFunction.EUCLIDEAN, base, queries, new int[queries.length][]);
+            }
+
+            var vectorTypeSupport = VectorizationProvider.getInstance().getVectorTypeSupport();
+            var queryVectors = new ArrayList<VectorFloat<?>>(queries.length);
+            var groundTruth = new ArrayList<Set<Integer>>(queries.length);
+            for (var query : queries) {
+                queryVectors.add(vectorTypeSupport.createFloatVector(query));
+                groundTruth.add(new HashSet<>());
+            }
+            return new DataSetJVector(
+                    "random",
+                    DataSetVector.SimilarityFunction.EUCLIDEAN,
+                    new VectorStoreValues(VectorStore.copyOf(base)),
+                    queryVectors,
+                    groundTruth);
+        }
+
+        private static Object[] queries(DataSetVector data) {
+            if (data instanceof DataSetLucene lucene) {
+                var queries = lucene.queryVectorsArray();
+                var vectors = new Object[queries.size()];
+                for (int i = 0; i < vectors.length; i++) {
+                    vectors[i] = queries.get(i);
+                }
+                return vectors;
+            }
+            List<VectorFloat<?>> queries = ((DataSetJVector) data).queryVectorsArray();
+            return queries.toArray();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class QueryState {
+        int next;
+        int[] ids;
+        float[] scores;
+
+        @Setup(Level.Trial)
+        public void setup(IndexState index) {
+            ids = new int[index.k];
+            scores = new float[index.k];
+        }
+
+        Object nextQuery(IndexState index) {
+            return index.queries[next++ % index.queries.length];
+        }
+    }
+
+    @Benchmark
+    public int query(IndexState index, QueryState state) throws Exception {
+        return index.querier.query(state.nextQuery(index), index.k, false, state.ids, state.scores);
+    }
+
+    @Benchmark
+    public void queryList(IndexState index, QueryState state, Blackhole blackhole) throws Exception {
+        blackhole.consume(index.querier.query(state.nextQuery(index), index.k, false));
+    }
+}
@@ -0,0 +1,102 @@
+package jmh;
+
+import io.github.jbellis.jvector.vector.VectorizationProvider;
+import io.github.jbellis.jvector.vector.types.VectorFloat;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lucene and JVector similarity kernels on the same vector pairs.
+ * The {@code lucenePanama} and {@code jvectorPanama} variants run in a fork with {@code jdk.incubator.vector},
+ * so that both libraries pick their Panama vectorized kernels instead of the scalar ones.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--enable-preview"})
+@State(Scope.Thread)
+public class SimilarityBench {
+    private static final int PAIRS = 1024;
+
+    @Param({"128", "960"})
+    int dimension;
+
+    @Param({"EUCLIDEAN", "DOT_PRODUCT", "COSINE"})
+    String function;
+
+    /**
+     * hdf5 dataset the vectors are sampled from, empty for random vectors
+     */
+    @Param({""})
+    String dataset;
+
+    private float[][] left;
+    private float[][] right;
+    private VectorFloat<?>[] jvectorLeft;
+    private VectorFloat<?>[] jvectorRight;
+    private org.apache.lucene.index.VectorSimilarityFunction luceneFunction;
+    private io.github.jbellis.jvector.vector.VectorSimilarityFunction jvectorFunction;
+    private int next;
+
+    @Setup
+    public void setup() throws Exception {
+        var random = new Random(Vectors.SEED);
+        var vectors = Vectors.load(dataset, 2 * PAIRS, dimension, random);
+        left = new float[PAIRS][];
+        right = new float[PAIRS][];
+        for (int i = 0; i < PAIRS; i++) {
+            left[i] = vectors[(2 * i) % vectors.length];
+            right[i] = vectors[(2 * i + 1) % vectors.length];
+        }
+
+        var vectorTypeSupport = VectorizationProvider.getInstance().getVectorTypeSupport();
+        jvectorLeft = new VectorFloat<?>[PAIRS];
+        jvectorRight = new VectorFloat<?>[PAIRS];
+        for (int i = 0; i < PAIRS; i++) {
+            jvectorLeft[i] = vectorTypeSupport.createFloatVector(left[i]);
+            jvectorRight[i] = vectorTypeSupport.createFloatVector(right[i]);
+        }
+
+        luceneFunction = org.apache.lucene.index.VectorSimilarityFunction.valueOf(function);
+        jvectorFunction = io.github.jbellis.jvector.vector.VectorSimilarityFunction.valueOf(function);
+    }
+
+    @Benchmark
+    public float lucene() {
+        var i = next++ & (PAIRS - 1);
+        return luceneFunction.compare(left[i], right[i]);
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {"--enable-preview", "--add-modules", "jdk.incubator.vector"})
+    public float lucenePanama() {
+        var i = next++ & (PAIRS - 1);
+        return luceneFunction.compare(left[i], right[i]);
+    }
+
+    @Benchmark
+    public float jvector() {
+        var i = next++ & (PAIRS - 1);
+        return jvectorFunction.compare(jvectorLeft[i], jvectorRight[i]);
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {"--enable-preview", "--add-modules", "jdk.incubator.vector"})
+    public float jvectorPanama() {
+        var i = next++ & (PAIRS - 1);
+        return jvectorFunction.compare(jvectorLeft[i], jvectorRight[i]);
+    }
+}
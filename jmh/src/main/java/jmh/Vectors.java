@@ -0,0 +1,47 @@
+package jmh;
+
+import jvector.Hdf5Loader;
+import util.DataSetLucene;
+import util.DataSetVector;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Input vectors of the benchmarks: either synthetic, or sampled from the train vectors of an hdf5 dataset
+ * (read from the {@code hdf5/} folder of the working directory, as the end-to-end tests do).
+ */
+final class Vectors {
+    static final long SEED = 42;
+
+    private Vectors() {}
+
+    static float[][] random(int count, int dimension, Random random) {
+        var vectors = new float[count][dimension];
+        for (var vector : vectors) {
+            for (int j = 0; j < dimension; j++) {
+                vector[j] = (float) random.nextGaussian();
+            }
+        }
+        return vectors;
+    }
+
+    /**
+     * @param dataset hdf5 dataset name, whose dimension then overrides {@code dimension},
+     *                or empty for {@code count} random vectors of the given dimension
+     */
+    static float[][] load(String dataset, int count, int dimension, Random random)
+            throws IOException, InterruptedException {
+        if (dataset.isEmpty()) {
+            return random(count, dimension, random);
+        }
+        var lucene = (DataSetLucene) DataSetVector.load("lucene", Path.of(Hdf5Loader.HDF5_DIR), dataset);
+        var base = lucene.baseVectorsArray();
+        var vectors = new float[Math.min(count, base.size())][];
+        for (int i = 0; i < vectors.length; i++) {
+            vectors[i] = base.get(random.nextInt(base.size()));
+        }
+        return vectors;
+    }
+}
@@ -0,0 +1,327 @@
+package benchmark;
+
+import com.google.common.base.Preconditions;
+import index.Index;
+import jvector.DataSetJVector;
+import org.HdrHistogram.Recorder;
+import util.Config;
+import util.DataSetLucene;
+import util.DataSetVector;
+import util.Exceptions;
+import util.GroundTruth;
+import util.ProgressBar;
+import util.StatsUtil;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.IntStream;
+
+public class MixedBench {
+
+    private static final int DEFAULT_DURATION_SECONDS = 60;
+    private static final int DEFAULT_REPORT_SECONDS = 5;
+    private static final int DEFAULT_REFRESH_MS = 1000;
+    private static final int DEFAULT_RECALL_QUERIES = 10;
+    private static final int LATENCY_SIGNIFICANT_DIGITS = 3;
+
+    /**
+     * Loads the first {@code initialVectors} base vectors of the dataset into a {@link Index.Live} index,
+     * then runs {@code queryThreads} clients for {@code durationSeconds}, each one looping over operations that are
+     * writes with a probability of {@code writeRatio} and queries otherwise. A write deletes a random live vector
+     * with a probability of {@code deleteRatio}, and inserts the next vector of the dataset otherwise.
+     * The index is refreshed every {@code refreshMs}, and every {@code reportSeconds} the writes, the query latencies
+     * and the recall of the first {@code recallQueries} queries against the live vectors
+     * are appended to {@code mixed-<provider>-<dataset>.csv}.
+     */
+    public static void run(Config.QuerySpec spec, Path datasetsPath, Path indexesPath) throws Exception {
+        var runtime = spec.runtime();
+        var threads = QueryBench.queryThreads(runtime);
+        var writeRatio = writeRatio(runtime);
+        var deleteRatio = deleteRatio(runtime);
+        var durationSeconds = durationSeconds(runtime);
+        var reportSeconds = reportSeconds(runtime);
+        var refreshMs = refreshMs(runtime);
+        var recallQueries = recallQueries(runtime);
+        var k = spec.k();
+        Preconditions.checkArgument(writeRatio >= 0 && writeRatio <= 1, "writeRatio must be between 0 and 1");
+        Preconditions.checkArgument(deleteRatio >= 0 && deleteRatio <= 1, "deleteRatio must be between 0 and 1");
+
+        var fileName = STR."\{spec.provider()}-\{spec.dataset()}";
+        StatsUtil.initMixedCsv(fileName);
+
+        var dataset = DataSetVector.load(spec.provider(), datasetsPath, spec.dataset());
+        var numQueries = QueryBench.getSize(dataset);
+        var queries = new ArrayList<>(numQueries);
+        for (int i = 0; i < numQueries; i++) {
+            queries.add(QueryBench.getVectorFloat(false, dataset, new Random(), i));
+        }
+        var vectors = new LiveVectors(baseSize(dataset));
+        var initialVectors = initialVectors(runtime, vectors.size());
+        Preconditions.checkArgument(
+                initialVectors > 0 && initialVectors <= vectors.size(),
+                "initialVectors must be between 1 and %s", vectors.size());
+
+        try (var index = Index.Live.fromParameters(
+                dataset, indexesPath, spec.provider(), spec.build(), spec.query())) {
+            var loadStart = Instant.now();
+            try (var pool = new ForkJoinPool(threads);
+                 var progress = ProgressBar.create("loading", initialVectors)) {
+                pool.submit(() -> IntStream.range(0, initialVectors)
+                        .parallel()
+                        .forEach(i -> Exceptions.wrap(() -> {
+                            vectors.insert(index);
+                            progress.inc();
+                        }))).join();
+            }
+            index.refresh();
+            System.out.println(STR."loaded \{initialVectors} vectors in \{Duration.between(loadStart, Instant.now())}");
+
+            var description = StatsUtil.getCsvDescription(index.description());
+            var latencies = new Recorder(LATENCY_SIGNIFICANT_DIGITS);
+            var inserts = new LongAdder();
+            var deletes = new LongAdder();
+            var stop = new AtomicBoolean();
+            try (var clients = Executors.newFixedThreadPool(threads);
+                 var refresher = Executors.newSingleThreadScheduledExecutor()) {
+                var refreshes = refresher.scheduleWithFixedDelay(
+                        () -> Exceptions.wrap(index::refresh), refreshMs, refreshMs, TimeUnit.MILLISECONDS);
+                var running = new ArrayList<Future<?>>();
+                try {
+                    for (int t = 0; t < threads; t++) {
+                        running.add(clients.submit(() -> {
+                            runClient(index, vectors, queries, k, writeRatio, deleteRatio,
+                                    latencies, inserts, deletes, stop);
+                            return null;
+                        }));
+                    }
+
+                    var start = Instant.now();
+                    var end = start.plusSeconds(durationSeconds);
+                    var intervalStart = start;
+                    while (intervalStart.isBefore(end)) {
+                        var wait = Duration.between(Instant.now(), min(end, intervalStart.plusSeconds(reportSeconds)));
+                        Thread.sleep(Math.max(0, wait.toMillis()));
+                        // a failed client or refresh ends the run
+                        for (var client : running) {
+                            if (client.isDone()) {
+                                client.get();
+                            }
+                        }
+                        if (refreshes.isDone()) {
+                            refreshes.get();
+                        }
+
+                        var now = Instant.now();
+                        var histogram = latencies.getIntervalHistogram();
+                        var inserted = inserts.sumThenReset();
+                        var deleted = deletes.sumThenReset();
+                        var recall = recall(dataset, index, queries, k, recallQueries, vectors);
+                        StatsUtil.appendToMixedCsv(
+                                fileName, description,
+                                Duration.between(start, now), Duration.between(intervalStart, now),
+                                vectors.live(), inserted, deleted,
+                                histogram, recall);
+                        System.out.println(STR."\{Duration.between(start, now).toSeconds()} s: "
+                                + STR."\{vectors.live()} live vectors, \{inserted} inserts, \{deleted} deletes, "
+                                + STR."\{histogram.getTotalCount()} queries, recall \{recall}");
+                        intervalStart = now;
+                    }
+                } finally {
+                    stop.set(true);
+                    refreshes.cancel(false);
+                }
+                for (var client : running) {
+                    client.get();
+                }
+            }
+        }
+    }
+
+    private static void runClient(
+            Index.Live index, LiveVectors vectors, List<?> queries, int k,
+            double writeRatio, double deleteRatio,
+            Recorder latencies, LongAdder inserts, LongAdder deletes, AtomicBoolean stop) throws IOException {
+        var random = ThreadLocalRandom.current();
+        var ids = new int[k];
+        var scores = new float[k];
+        while (!stop.get()) {
+            if (random.nextDouble() < writeRatio) {
+                // once every vector was inserted, or when none can be deleted, the other write is done instead
+                if (random.nextDouble() < deleteRatio && vectors.delete(index, random)) {
+                    deletes.increment();
+                } else if (vectors.insert(index)) {
+                    inserts.increment();
+                } else if (vectors.delete(index, random)) {
+                    deletes.increment();
+                }
+            } else {
+                var query = queries.get(random.nextInt(queries.size()));
+                var start = System.nanoTime();
+                index.query(query, k, true, ids, scores);
+                latencies.recordValue(System.nanoTime() - start);
+            }
+        }
+    }
+
+    /**
+     * Recall of the results that the queries get, against the exact nearest neighbors among the vectors whose
+     * insertion has returned and that are not deleted: the writes that are not visible yet lower it.
+     * The same queries are measured every time, so that the recall of successive intervals can be compared.
+     *
+     * @return NaN if no query is measured
+     */
+    private static double recall(
+            DataSetVector dataset, Index.Live index, List<?> queries, int k, int recallQueries, LiveVectors vectors)
+            throws IOException {
+        var count = Math.min(recallQueries, queries.size());
+        var ids = new int[k];
+        var scores = new float[k];
+        var sum = 0d;
+        for (int q = 0; q < count; q++) {
+            var exact = GroundTruth.exact(dataset, queries.get(q), k, vectors::isLive);
+            var found = index.query(queries.get(q), k, true, ids, scores);
+            var truePositives = 0;
+            for (int i = 0; i < found; i++) {
+                if (Arrays.binarySearch(exact, ids[i]) >= 0) {
+                    truePositives++;
+                }
+            }
+            sum += (double) truePositives / exact.length;
+        }
+        return count == 0 ? Double.NaN : sum / count;
+    }
+
+    /**
+     * Base vectors of the dataset in the index: inserts add them in order, deletes remove random live ones.
+     */
+    private static final class LiveVectors {
+        private static final int ABSENT = 0;
+        private static final int LIVE = 1;
+        private static final int DELETED = 2;
+        // random picks of a deletion before giving up, when most inserted vectors are deleted
+        private static final int DELETE_ATTEMPTS = 16;
+
+        private final AtomicIntegerArray states;
+        private final AtomicInteger next = new AtomicInteger();
+        private final AtomicInteger live = new AtomicInteger();
+
+        LiveVectors(int size) {
+            states = new AtomicIntegerArray(size);
+        }
+
+        int size() {
+            return states.length();
+        }
+
+        int live() {
+            return live.get();
+        }
+
+        boolean isLive(int ordinal) {
+            return states.get(ordinal) == LIVE;
+        }
+
+        /**
+         * @return false if every vector was inserted
+         */
+        boolean insert(Index.Live index) throws IOException {
+            var ordinal = next.getAndIncrement();
+            if (ordinal >= states.length()) {
+                return false;
+            }
+            index.insert(ordinal);
+            states.set(ordinal, LIVE);
+            live.incrementAndGet();
+            return true;
+        }
+
+        /**
+         * @return false if no live vector was found
+         */
+        boolean delete(Index.Live index, Random random) throws IOException {
+            var inserted = Math.min(next.get(), states.length());
+            for (int attempt = 0; attempt < DELETE_ATTEMPTS; attempt++) {
+                var ordinal = random.nextInt(inserted);
+                if (states.compareAndSet(ordinal, LIVE, DELETED)) {
+                    live.decrementAndGet();
+                    index.delete(ordinal);
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private static int baseSize(DataSetVector dataset) {
+        if (dataset instanceof DataSetLucene lucene) {
+            return lucene.baseVectorsArray().size();
+        } else if (dataset instanceof DataSetJVector jVector) {
+            return jVector.baseVectorsArray().size();
+        } else {
+            throw new RuntimeException("Unrecognized vector dataset: " + dataset.name());
+        }
+    }
+
+    private static Instant min(Instant a, Instant b) {
+        return a.isBefore(b) ? a : b;
+    }
+
+    private static double writeRatio(Map<String, String> runtime) {
+        return Optional.ofNullable(runtime.get("writeRatio"))
+                .map(Double::parseDouble)
+                .orElse(0.1);
+    }
+
+    private static double deleteRatio(Map<String, String> runtime) {
+        return Optional.ofNullable(runtime.get("deleteRatio"))
+                .map(Double::parseDouble)
+                .orElse(0.5);
+    }
+
+    private static int initialVectors(Map<String, String> runtime, int size) {
+        return Optional.ofNullable(runtime.get("initialVectors"))
+                .map(Integer::parseInt)
+                .orElse(size / 2);
+    }
+
+    private static int durationSeconds(Map<String, String> runtime) {
+        return Optional.ofNullable(runtime.get("durationSeconds"))
+                .map(Integer::parseInt)
+                .orElse(DEFAULT_DURATION_SECONDS);
+    }
+
+    private static int reportSeconds(Map<String, String> runtime) {
+        return Optional.ofNullable(runtime.get("reportSeconds"))
+                .map(Integer::parseInt)
+                .orElse(DEFAULT_REPORT_SECONDS);
+    }
+
+    private static int refreshMs(Map<String, String> runtime) {
+        return Optional.ofNullable(runtime.get("refreshMs"))
+                .map(Integer::parseInt)
+                .orElse(DEFAULT_REFRESH_MS);
+    }
+
+    private static int recallQueries(Map<String, String> runtime) {
+        return Optional.ofNullable(runtime.get("recallQueries"))
+                .map(Integer::parseInt)
+                .orElse(DEFAULT_RECALL_QUERIES);
+    }
+}
@@ -1,7 +1,6 @@
 package benchmark;
 
 import io.prometheus.client.CollectorRegistry;
-import org.apache.commons.math3.util.Pair;
 import util.ProgressBar;
 import index.Index;
 import util.Config;
@@ -13,12 +12,14 @@ import io.prometheus.client.hotspot.DefaultExports;
 import jdk.jfr.Configuration;
 import jdk.jfr.Recording;
 import jvector.DataSetJVector;
-import org.apache.commons.math3.stat.descriptive.SynchronizedDescriptiveStatistics;
 import oshi.SystemInfo;
 import oshi.software.os.OSProcess;
 import oshi.software.os.OSThread;
 import util.DataSetVector;
 import util.DataSetLucene;
+import util.GroundTruth;
+import util.QueryResult;
+import util.QueryStats;
 import util.StatsUtil;
 
 import java.io.Closeable;
@@ -27,9 +28,16 @@ import java.nio.file.Path;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.ToLongFunction;
 import java.util.stream.IntStream;
-import java.util.stream.Stream;
 
 import static index.JVectorIndex.JVECTOR_PREFIX;
 import static index.LuceneIndex.LUCENE_PREFIX;
@@ -39,6 +47,9 @@ public class QueryBench {
     private static final int DEFAULT_WARMUP_ITERATIONS = 1;
     private static final int DEFAULT_TEST_ITERATIONS = 2;
     private static final int DEFAULT_BLOCK_DEVICE_STATS_INTERVAL_MS = 10;
+    private static final int DEFAULT_OPEN_LOOP_DURATION_SECONDS = 60;
+    private static final long NOT_SCHEDULED = -1;
+    private static final Map<String, int[][]> FILTERED_GROUND_TRUTHS = new ConcurrentHashMap<>();
 
 
     public static void test(Config.QuerySpec spec, Path datasetsPath, Path indexesPath, Path reportsPath)
@@ -50,141 +61,177 @@ public class QueryBench {
                 var index = Index.Querier
                         .fromParameters(dataset, indexesPath, spec.provider(), spec.build(), spec.query())
         ) {
+            test(spec, dataset, index, reportsPath);
+        }
+    }
 
-            var queryThreads = queryThreads(spec.runtime());
-            var concurrent = queryThreads != 1;
-            var systemInfo = new SystemInfo();
-            var warmup = warmup(spec.runtime());
-            var test = test(spec.runtime());
-            var testOnTrain = testOnTrain(spec.runtime());
-            var trainTestQueries = trainTestQueries(spec.runtime());
-            var k = spec.k();
-            var jfr = jfr(spec.runtime());
-            var recall = recall(spec.runtime());
-            var recallWar = recall(spec.runtime());
-            var threadStats = threadStats(spec.runtime());
-            var random = random(spec.runtime());
-            var numQueries = testOnTrain ? trainTestQueries : getSize(dataset);
-            var queries = new ArrayList(numQueries);
-
-            Preconditions.checkArgument(!(testOnTrain && recall));
-            try (var prom = startPromServer(spec, numQueries * test)) {
-
-                for (int i = 0; i < numQueries; i++) {
-                    Object vectorFloat = getVectorFloat(testOnTrain, dataset, random, i);
-                    queries.add(vectorFloat);
-                }
-
-                var recalls = new SynchronizedDescriptiveStatistics();
-                var precisions = new SynchronizedDescriptiveStatistics();
-                var executionDurations = new SynchronizedDescriptiveStatistics();
-                var minorFaults = new SynchronizedDescriptiveStatistics();
-                var majorFaults = new SynchronizedDescriptiveStatistics();
-
-                try (var pool = new ForkJoinPool(queryThreads)) {
-                    try (var progress = ProgressBar.create("warmup", warmup * numQueries)) {
-                        if (concurrent) {
-                            pool.submit(
-                                    () -> IntStream.range(0, warmup)
-                                            .parallel()
-                                            .forEach(
-                                                    _ -> IntStream.range(0, numQueries)
-                                                            .parallel()
-                                                            .forEach(j -> Exceptions.wrap(
-                                                                    () -> {
-                                                                        var query = queries.get(j);
-                                                                        index.query(query, k, recallWar);
-                                                                        progress.inc();
-                                                                    })
-                                                            )
-                                            )
-                                    ).join();
-                        } else {
-                            for (int i = 0; i < warmup; i++) {
-                                for (int j = 0; j < numQueries; j++) {
-                                    var query = queries.get(j);
-                                    index.query(query, k, recall);
-                                    progress.inc();
-                                }
+    /**
+     * Runs the warmup and test phases of the spec against an open querier and appends the stats to the query CSV,
+     * which must have been initialized.
+     */
+    public static QueryResult test(Config.QuerySpec spec, DataSetVector dataset, Index.Querier index, Path reportsPath)
+            throws Exception {
+        var queryThreads = queryThreads(spec.runtime());
+        var concurrent = queryThreads != 1;
+        var systemInfo = new SystemInfo();
+        var warmup = warmup(spec.runtime());
+        var test = test(spec.runtime());
+        var testOnTrain = testOnTrain(spec.runtime());
+        var trainTestQueries = trainTestQueries(spec.runtime());
+        var k = spec.k();
+        var jfr = jfr(spec.runtime());
+        var recall = recall(spec.runtime());
+        var recallWar = recall(spec.runtime());
+        var threadStats = threadStats(spec.runtime());
+        var random = random(spec.runtime());
+        var numQueries = testOnTrain ? trainTestQueries : getSize(dataset);
+        var queries = new ArrayList(numQueries);
+        var batchSize = batchSize(spec.runtime());
+        var numBatches = Math.ceilDiv(numQueries, batchSize);
+        var targetQps = targetQps(spec.runtime());
+        var durationSeconds = durationSeconds(spec.runtime());
+        var virtual = virtualExecutor(spec.runtime());
+        var concurrency = concurrency(spec.runtime(), queryThreads);
+        // a virtual thread reports the faults of its current carrier, so only the process ones are meaningful
+        var perThreadStats = concurrent && !virtual;
+
+        Preconditions.checkArgument(!(testOnTrain && recall));
+        try (var prom = startPromServer(spec, numQueries * test, index)) {
+
+            for (int i = 0; i < numQueries; i++) {
+                Object vectorFloat = getVectorFloat(testOnTrain, dataset, random, i);
+                queries.add(vectorFloat);
+            }
+            var filter = index.filter();
+            var groundTruths = !recall ? null
+                    : filter == null ? sortedGroundTruths(dataset, numQueries)
+                    : filteredGroundTruths(dataset, queries, k, filter, queryThreads);
+            var buffers = ThreadLocal.withInitial(() -> new QueryBuffers(batchSize, k));
+
+            var stats = new QueryStats.Recorder();
+            Duration testDuration;
+
+            try (
+                    var pool = new ForkJoinPool(queryThreads);
+                    var clients = virtual ? virtualClients(concurrency) : null
+            ) {
+                try (var progress = ProgressBar.create("warmup", warmup * numQueries)) {
+                    if (virtual) {
+                        runAll(clients, warmup * numBatches, n -> {
+                            var batch = batch(queries, n % numBatches, batchSize);
+                            runQueries(index, batch, k, recallWar, buffers.get());
+                            progress.inc(batch.size());
+                        });
+                    } else if (concurrent) {
+                        pool.submit(
+                                () -> IntStream.range(0, warmup)
+                                        .parallel()
+                                        .forEach(
+                                                _ -> IntStream.range(0, numBatches)
+                                                        .parallel()
+                                                        .forEach(j -> Exceptions.wrap(
+                                                                () -> {
+                                                                    var batch = batch(queries, j, batchSize);
+                                                                    runQueries(index, batch, k, recallWar, buffers.get());
+                                                                    progress.inc(batch.size());
+                                                                })
+                                                        )
+                                        )
+                                ).join();
+                    } else {
+                        for (int i = 0; i < warmup; i++) {
+                            for (int j = 0; j < numBatches; j++) {
+                                var batch = batch(queries, j, batchSize);
+                                runQueries(index, batch, k, recall, buffers.get());
+                                progress.inc(batch.size());
                             }
                         }
                     }
+                }
+                index.endWarmup();
+
+                Recording recording = null;
+                if (jfr) {
+                    var jfrPath = reportsPath.resolve(
+                            String.format(
+                                    "%s_%s-query-%s-%s-%s-k:%s.jfr",
+                                    spec.provider(),
+                                    Instant.now().getEpochSecond(),
+                                    spec.dataset(),
+                                    spec.buildString(),
+                                    spec.queryString(),
+                                    spec.k()
+                            )
+                    );
+                    System.out.println("starting jfr, will dump to {}" + jfrPath);
+                    Configuration config = Configuration.getConfiguration("profile");
+                    recording = new Recording(config);
+                    recording.setDestination(jfrPath);
+                    recording.setDumpOnExit(true);
+                    recording.start();
+                }
 
-                    Recording recording = null;
-                    if (jfr) {
-                        var jfrPath = reportsPath.resolve(
-                                String.format(
-                                        "%s_%s-query-%s-%s-%s-k:%s.jfr",
-                                        spec.provider(),
-                                        Instant.now().getEpochSecond(),
-                                        spec.dataset(),
-                                        spec.buildString(),
-                                        spec.queryString(),
-                                        spec.k()
-                                )
-                        );
-                        System.out.println("starting jfr, will dump to {}" + jfrPath);
-                        Configuration config = Configuration.getConfiguration("profile");
-                        recording = new Recording(config);
-                        recording.setDestination(jfrPath);
-                        recording.setDumpOnExit(true);
-                        recording.start();
-                    }
-
-                    try (var progress = ProgressBar.create("testing", test * numQueries)) {
-                        if (concurrent) {
-                            pool.submit(
-                                    () -> IntStream.range(0, test)
-                                            .parallel()
-                                            .forEach(i -> IntStream
-                                                    .range(0, numQueries)
-                                                    .parallel()
-                                                    .forEach(
-                                                            j -> Exceptions.wrap(
-                                                                    () -> prepairRunQuery(spec, j, queries, dataset, index, systemInfo, recalls, precisions, executionDurations, minorFaults, majorFaults, concurrent, recall, threadStats, progress, prom)
-                                                            )
-                                                    )
-                                            )
-                                    ).join();
-                        } else {
-                            for (int i = 0; i < test; i++) {
-                                for (int j = 0; j < numQueries; j++) {
-                                    prepairRunQuery(spec, j, queries, dataset, index, systemInfo, recalls, precisions, executionDurations, minorFaults, majorFaults, concurrent, recall, threadStats, progress, prom);
-                                }
+                var testStart = Instant.now();
+                var testQueries = targetQps > 0 ? (int) (targetQps * durationSeconds) : test * numQueries;
+                try (var progress = ProgressBar.create("testing", testQueries)) {
+                    if (targetQps > 0) {
+                        runOpenLoop(virtual ? clients : pool, targetQps / batchSize, durationSeconds,
+                                (n, intendedStart) -> prepairRunQuery(spec, n % numBatches, batchSize, queries, groundTruths, buffers, index, systemInfo, stats, intendedStart, perThreadStats, recall, threadStats, progress, prom));
+                    } else if (virtual) {
+                        runAll(clients, test * numBatches,
+                                n -> prepairRunQuery(spec, n % numBatches, batchSize, queries, groundTruths, buffers, index, systemInfo, stats, NOT_SCHEDULED, perThreadStats, recall, threadStats, progress, prom));
+                    } else if (concurrent) {
+                        pool.submit(
+                                () -> IntStream.range(0, test)
+                                        .parallel()
+                                        .forEach(i -> IntStream
+                                                .range(0, numBatches)
+                                                .parallel()
+                                                .forEach(
+                                                        j -> Exceptions.wrap(
+                                                                () -> prepairRunQuery(spec, j, batchSize, queries, groundTruths, buffers, index, systemInfo, stats, NOT_SCHEDULED, perThreadStats, recall, threadStats, progress, prom)
+                                                        )
+                                                )
+                                        )
+                                ).join();
+                    } else {
+                        for (int i = 0; i < test; i++) {
+                            for (int j = 0; j < numBatches; j++) {
+                                prepairRunQuery(spec, j, batchSize, queries, groundTruths, buffers, index, systemInfo, stats, NOT_SCHEDULED, perThreadStats, recall, threadStats, progress, prom);
                             }
                         }
                     }
-                    if (jfr) {
-                        System.out.println("wrote jfr recording");
-                        recording.stop();
-                        recording.close();
-                    }
                 }
-
-                String fileName = STR."\{spec.provider()}-\{spec.dataset()}";
-                String description = StatsUtil.getCsvDescription(index.description());
-                StatsUtil.appendToQueryCsv(
-                        fileName ,
-                        description, recalls, precisions, testOnTrain,
-                        recall, executionDurations, minorFaults,
-                        majorFaults, threadStats, spec.k()
-                );
-
+                testDuration = Duration.between(testStart, Instant.now());
+                if (jfr) {
+                    System.out.println("wrote jfr recording");
+                    recording.stop();
+                    recording.close();
+                }
             }
+
+            String fileName = STR."\{spec.provider()}-\{spec.dataset()}";
+            String description = StatsUtil.getCsvDescription(index.description());
+            StatsUtil.appendToQueryCsv(
+                    fileName ,
+                    description, stats, testOnTrain,
+                    recall, threadStats, spec.k(),
+                    targetQps, testDuration, index.cacheStats()
+            );
+
+            var merged = stats.merge();
+            return new QueryResult(description, k, merged.recalls.getMean(),
+                    merged.latencies.getTotalCount() / (testDuration.toNanos() / 1_000_000_000d));
         }
     }
 
-    private static void prepairRunQuery(Config.QuerySpec spec, int j, ArrayList queries, DataSetVector dataset, Index.Querier index, SystemInfo systemInfo, 
-                                        SynchronizedDescriptiveStatistics recalls,
-                                        SynchronizedDescriptiveStatistics precisions,
-                                        SynchronizedDescriptiveStatistics executionDurations, 
-                                        SynchronizedDescriptiveStatistics minorFaults, 
-                                        SynchronizedDescriptiveStatistics majorFaults, 
+    private static void prepairRunQuery(Config.QuerySpec spec, int j, int batchSize, ArrayList queries, int[][] groundTruths, ThreadLocal<QueryBuffers> buffers, Index.Querier index, SystemInfo systemInfo, 
+                                        QueryStats.Recorder stats, long intendedStartNanos,
                                         boolean concurrent, boolean collectRecall, boolean threadStats, 
                                         ProgressBar progress, 
                                         Prom prom) throws Exception {
-        var query = queries.get(j);
-        var groundTruth = getGroundTruth(j, dataset);
+        var batch = batch(queries, j, batchSize);
+        var buffer = buffers.get();
         int k = spec.k();
 
         boolean collectThreadStats = systemInfo.getOperatingSystem().getFamily() != "macOS";
@@ -204,8 +251,9 @@ public class QueryBench {
         }
 
         var start = Instant.now();
-        var results = index.query(query, k, collectRecall);
+        runQueries(index, batch, k, collectRecall, buffer);
         var end = Instant.now();
+        var endNanos = System.nanoTime();
 
         var endMinorFaults = 0L;
         var endMajorFaults = 0L;
@@ -215,51 +263,202 @@ public class QueryBench {
             endMajorFaults = statsCollector.majorFaults();
         }
 
+        // batched queries are accounted as if each one took an equal share of the batch
+        var recorded = stats.get();
         var duration = Duration.between(start, end);
-        executionDurations.addValue(duration.toNanos());
-
-        if (collectRecall) {
-            /*
-            Precision = relevant results / all retrieved results
-            
-            Recall = relevant results / all results
-             */
-
-            Pair<Stream, Integer> groundTruthStreamSize = getGroundTruthStreamAndSize(groundTruth);
-            var truePositives = groundTruthStreamSize.getFirst()
-                    .filter(results::contains).count();
-            var precision = (double) truePositives / k;
-            precisions.addValue(precision);
-            
-            var recall = (double) truePositives / groundTruthStreamSize.getSecond();
-            recalls.addValue(recall);
-        }
+        var size = batch.size();
+        // scheduled queries are measured from when they should have started, to include the time spent queueing
+        var latency = intendedStartNanos == NOT_SCHEDULED
+                ? duration.toNanos() / size
+                : Math.max(0, endNanos - intendedStartNanos);
+        recorded.latencies.recordValueWithCount(latency, size);
+        for (int b = 0; b < size; b++) {
+            recorded.executionDurations.addValue((double) duration.toNanos() / size);
+
+            if (collectRecall) {
+                /*
+                Precision = relevant results / all retrieved results
+                
+                Recall = relevant results / all results
+                 */
+
+                var groundTruth = groundTruths[j * batchSize + b];
+                var ids = buffer.ids()[b];
+                var truePositives = 0;
+                for (int i = 0; i < buffer.counts()[b]; i++) {
+                    if (Arrays.binarySearch(groundTruth, ids[i]) >= 0) {
+                        truePositives++;
+                    }
+                }
+                var precision = (double) truePositives / k;
+                recorded.precisions.addValue(precision);
+                
+                var recall = (double) truePositives / groundTruth.length;
+                recorded.recalls.addValue(recall);
+            }
 
-        if (threadStats) {
-            minorFaults.addValue(endMinorFaults - startMinorFaults);
-            majorFaults.addValue(endMajorFaults - startMajorFaults);
+            if (threadStats) {
+                recorded.minorFaults.addValue((double) (endMinorFaults - startMinorFaults) / size);
+                recorded.majorFaults.addValue((double) (endMajorFaults - startMajorFaults) / size);
+            }
         }
 
         prom.queryDurationSeconds.inc((double) duration.toNanos() / (1000 * 1000 * 1000));
-        progress.inc();
+        progress.inc(size);
         
-        prom.queries.inc();
+        prom.queries.inc(size);
     }
 
-    private static <T> T getGroundTruth(int j, DataSetVector dataset) {
-        if (dataset instanceof DataSetLucene lucene) {
-            return (T) lucene.groundTruth()[j];
-        } else if (dataset instanceof DataSetJVector jVector) {
-            return (T) jVector.groundTruth().get(j);
+    private interface ScheduledQuery {
+        void run(int n, long intendedStartNanos) throws Exception;
+    }
+
+    /**
+     * Open loop: the n-th query is submitted at {@code n / rate} seconds from the start, whether or not
+     * the previous ones are completed, so that a saturated index shows up as growing latencies
+     * instead of silently lowering the arrival rate (coordinated omission).
+     */
+    private static void runOpenLoop(ExecutorService executor, double rate, int durationSeconds, ScheduledQuery query)
+            throws Exception {
+        var failed = new AtomicBoolean();
+        // queries in submission order, which mostly is their completion order
+        var pending = new ArrayDeque<Future<?>>();
+        var start = System.nanoTime();
+        var end = start + TimeUnit.SECONDS.toNanos(durationSeconds);
+        for (int n = 0; !failed.get(); n++) {
+            var intendedStart = start + (long) (n * 1_000_000_000d / rate);
+            if (intendedStart >= end) {
+                break;
+            }
+            // parkNanos may return early, spuriously or on interrupt
+            for (long delay; (delay = intendedStart - System.nanoTime()) > 0; ) {
+                LockSupport.parkNanos(delay);
+            }
+            // drop the completed queries as the run goes, so that only the running ones are kept
+            while (!pending.isEmpty() && pending.peek().isDone()) {
+                pending.poll().get();
+            }
+
+            var i = n;
+            pending.add(executor.submit(() -> {
+                try {
+                    query.run(i, intendedStart);
+                    return null;
+                } catch (Exception e) {
+                    failed.set(true);
+                    throw e;
+                }
+            }));
+        }
+        for (var future : pending) {
+            future.get();
+        }
+    }
+
+    private interface IndexedTask {
+        void run(int n) throws Exception;
+    }
+
+    /**
+     * Runs {@code count} tasks on the bounded {@link #virtualClients} executor,
+     * i.e. each client sends its next query as soon as the previous one is answered.
+     */
+    private static void runAll(ExecutorService executor, int count, IndexedTask task) throws Exception {
+        var pending = new ArrayList<Future<?>>(count);
+        for (int n = 0; n < count; n++) {
+            var i = n;
+            pending.add(executor.submit(() -> {
+                task.run(i);
+                return null;
+            }));
+        }
+        for (var future : pending) {
+            future.get();
+        }
+    }
+
+    /**
+     * {@code concurrency} virtual threads, each one simulating a client. The threads are long-lived,
+     * so that per-thread state (searchers, buffers, stats) is not created again for every query.
+     */
+    private static ExecutorService virtualClients(int concurrency) {
+        return Executors.newFixedThreadPool(concurrency, Thread.ofVirtual().name("query-client-", 0).factory());
+    }
+
+    /**
+     * Per-thread buffers the results of a batch are written into, reused across batches.
+     */
+    private record QueryBuffers(int[][] ids, float[][] scores, int[] counts) {
+        QueryBuffers(int batchSize, int k) {
+            this(new int[batchSize][k], new float[batchSize][k], new int[batchSize]);
+        }
+    }
+
+    private static List<?> batch(List<?> queries, int j, int batchSize) {
+        var from = j * batchSize;
+        return queries.subList(from, Math.min(from + batchSize, queries.size()));
+    }
+
+    private static void runQueries(Index.Querier index, List<?> batch, int k, boolean ensureIds, QueryBuffers buffer)
+            throws IOException {
+        if (batch.size() == 1) {
+            buffer.counts()[0] = index.query(batch.get(0), k, ensureIds, buffer.ids()[0], buffer.scores()[0]);
         } else {
-            throw new RuntimeException("Unrecognized vector dataset: " + dataset.name());
+            index.queryBatch(batch, k, ensureIds, buffer.ids(), buffer.scores(), buffer.counts());
+        }
+    }
+
+    /**
+     * Ground truth ids of each query, sorted so that every result is checked with a binary search.
+     */
+    private static int[][] sortedGroundTruths(DataSetVector dataset, int numQueries) {
+        var groundTruths = new int[numQueries][];
+        for (int j = 0; j < numQueries; j++) {
+            if (dataset instanceof DataSetLucene lucene) {
+                groundTruths[j] = lucene.groundTruth()[j].clone();
+            } else if (dataset instanceof DataSetJVector jVector) {
+                groundTruths[j] = jVector.groundTruth().get(j).stream().mapToInt(Integer::intValue).toArray();
+            } else {
+                throw new RuntimeException("Unrecognized vector dataset: " + dataset.name());
+            }
+            Arrays.sort(groundTruths[j]);
+        }
+        return groundTruths;
+    }
+
+    /**
+     * Exact neighbors of each query among the base vectors accepted by the filter of the querier,
+     * which the ground truth of the dataset does not account for, sorted like {@link #sortedGroundTruths}.
+     * They are computed once per process for a dataset, filter and {@code k}, which the runs of a sweep share.
+     */
+    static int[][] filteredGroundTruths(
+            DataSetVector dataset, List<?> queries, int k, Index.Querier.Filter filter, int threads) {
+        // the loaded datasets differ between providers, JVector ones being scrubbed,
+        // and a JVector dataset only has its file name in its field, its name() being empty
+        var name = dataset instanceof DataSetJVector jVector ? jVector.name : dataset.name();
+        var key = STR."\{dataset.getClass().getSimpleName()}-\{name}-k:\{k}-\{filter.description()}";
+        var cached = FILTERED_GROUND_TRUTHS.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        var groundTruths = new int[queries.size()][];
+        try (var pool = new ForkJoinPool(threads);
+             var progress = ProgressBar.create("filtered ground truth", queries.size())) {
+            pool.submit(() -> IntStream.range(0, queries.size())
+                    .parallel()
+                    .forEach(j -> Exceptions.wrap(() -> {
+                        groundTruths[j] = GroundTruth.exact(dataset, queries.get(j), k, filter.accepts());
+                        progress.inc();
+                    }))).join();
         }
+        FILTERED_GROUND_TRUTHS.put(key, groundTruths);
+        return groundTruths;
     }
 
-    private static <T> T getVectorFloat(boolean testOnTrain, DataSetVector dataset, Random random, int i) throws IOException {
+    static <T> T getVectorFloat(boolean testOnTrain, DataSetVector dataset, Random random, int i) throws IOException {
         if (testOnTrain) {
             if (dataset instanceof DataSetLucene lucene) {
-                return (T) lucene.baseVectorsArray().vectorValue(random.nextInt(lucene.baseVectorsArray().size()));
+                return (T) lucene.baseVectorsArray().get(random.nextInt(lucene.baseVectorsArray().size()));
             } else if (dataset instanceof DataSetJVector jVector) {
                 return (T) jVector.baseVectorsArray().get(jVector.baseVectorsArray().size());
             }
@@ -273,7 +472,7 @@ public class QueryBench {
         throw new RuntimeException("Unrecognized vector dataset: " + dataset.name());
     }
 
-    private static int getSize(DataSetVector dataset) {
+    static int getSize(DataSetVector dataset) {
         if (dataset instanceof DataSetLucene lucene) {
             return lucene.queryVectorsArray().size();
         } else if (dataset instanceof DataSetJVector jVector) {
@@ -284,16 +483,7 @@ public class QueryBench {
 
     }
 
-    private static <V> Pair<Stream, Integer> getGroundTruthStreamAndSize(V groundTruth) {
-        if (groundTruth instanceof Collection<?> set) {
-            return Pair.create(set.stream(), set.size());
-        }
-        int[] groundTruthArray = (int[]) groundTruth;
-        Stream<Integer> stream = Arrays.stream(groundTruthArray).boxed();
-        return Pair.create(stream, groundTruthArray.length);
-    }
-
-    private static Prom startPromServer(Config.QuerySpec spec, int numQueries) throws Exception {
+    private static Prom startPromServer(Config.QuerySpec spec, int numQueries, Index.Querier index) throws Exception {
         DefaultExports.initialize();
 
         Map<String, String> labels = new HashMap<>();
@@ -327,6 +517,11 @@ public class QueryBench {
                         .register()
                         .labels(labelValues);
 
+        registerCacheGauge("cache_hits", "graph nodes read from the cache since the warmup",
+                labelNames, labelValues, index, Index.Querier.CacheStats::hits);
+        registerCacheGauge("cache_misses", "graph nodes read from disk since the warmup",
+                labelNames, labelValues, index, Index.Querier.CacheStats::misses);
+
         Gauge.build()
                 .labelNames(labelNames)
                 .name("num_queries")
@@ -339,6 +534,26 @@ public class QueryBench {
         return new Prom(server, queries, queryDurationSeconds, labelValues);
     }
 
+    /**
+     * Gauge read from the querier when it is scraped, so that the query threads don't aggregate the cache counters.
+     */
+    private static void registerCacheGauge(
+            String name, String help, String[] labelNames, String[] labelValues,
+            Index.Querier index, ToLongFunction<Index.Querier.CacheStats> counter) {
+        Gauge.build()
+                .labelNames(labelNames)
+                .name(name)
+                .help(help)
+                .register()
+                .setChild(new Gauge.Child() {
+                    @Override
+                    public double get() {
+                        var cacheStats = index.cacheStats();
+                        return cacheStats == null ? 0 : counter.applyAsLong(cacheStats);
+                    }
+                }, labelValues);
+    }
+
     record Prom(
             HTTPServer server, Gauge.Child queries, Gauge.Child queryDurationSeconds, String[] labels)
             implements Closeable {
@@ -434,10 +649,41 @@ public class QueryBench {
                 .orElse(100000);
     }
 
-    private static boolean recall(Map<String, String> runtime) {
+    static boolean recall(Map<String, String> runtime) {
         return Optional.ofNullable(runtime.get("recall")).map(Boolean::parseBoolean).orElse(true);
     }
 
+    private static boolean virtualExecutor(Map<String, String> runtime) {
+        var executor = Optional.ofNullable(runtime.get("executor")).orElse("forkjoin");
+        Preconditions.checkArgument(
+                executor.equals("forkjoin") || executor.equals("virtual"), "unknown executor: %s", executor);
+        return executor.equals("virtual");
+    }
+
+    private static int concurrency(Map<String, String> runtime, int queryThreads) {
+        return Optional.ofNullable(runtime.get("concurrency"))
+                .map(Integer::parseInt)
+                .orElse(queryThreads);
+    }
+
+    private static double targetQps(Map<String, String> runtime) {
+        return Optional.ofNullable(runtime.get("targetQps"))
+                .map(Double::parseDouble)
+                .orElse(0d);
+    }
+
+    private static int durationSeconds(Map<String, String> runtime) {
+        return Optional.ofNullable(runtime.get("durationSeconds"))
+                .map(Integer::parseInt)
+                .orElse(DEFAULT_OPEN_LOOP_DURATION_SECONDS);
+    }
+
+    private static int batchSize(Map<String, String> runtime) {
+        return Optional.ofNullable(runtime.get("batchSize"))
+                .map(Integer::parseInt)
+                .orElse(1);
+    }
+
     private static boolean threadStats(Map<String, String> runtime) {
         return Optional.ofNullable(runtime.get("threadStats")).map(Boolean::parseBoolean).orElse(true);
     }
@@ -0,0 +1,53 @@
+package benchmark;
+
+import com.google.common.base.Preconditions;
+import index.Index;
+import util.Config;
+import util.DataSetVector;
+import util.QueryResult;
+import util.StatsUtil;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+
+public class SweepBench {
+
+    /**
+     * Builds the index of every build config of the sweep once, and runs all the query configs against it,
+     * reusing the same querier as long as {@link Index.Querier#reconfigure} accepts the next query parameters.
+     * Besides the usual build and query CSVs, the recall/throughput points of every index
+     * are appended to {@code pareto-<provider>-<dataset>.csv}.
+     */
+    public static void sweep(Config.SweepSpec spec, Path datasetsPath, Path indexesPath, Path reportsPath)
+            throws Exception {
+        Preconditions.checkArgument(QueryBench.recall(spec.runtime()), "a sweep needs the recall to be collected");
+        var fileName = STR."\{spec.provider()}-\{spec.dataset()}";
+        StatsUtil.initQueryStatsCsv(fileName);
+        StatsUtil.initParetoCsv(fileName);
+
+        var dataset = DataSetVector.load(spec.provider(), datasetsPath, spec.dataset());
+        for (var buildSpec : spec.buildSpecs()) {
+            BuildBench.build(buildSpec, datasetsPath, indexesPath, reportsPath);
+
+            var results = new ArrayList<QueryResult>();
+            Index.Querier querier = null;
+            try {
+                for (var querySpec : spec.querySpecs(buildSpec)) {
+                    if (querier == null || !querier.reconfigure(querySpec.query())) {
+                        if (querier != null) {
+                            querier.close();
+                        }
+                        querier = Index.Querier.fromParameters(
+                                dataset, indexesPath, spec.provider(), buildSpec.build(), querySpec.query());
+                    }
+                    results.add(QueryBench.test(querySpec, dataset, querier, reportsPath));
+                }
+            } finally {
+                if (querier != null) {
+                    querier.close();
+                }
+            }
+            StatsUtil.appendToParetoCsv(fileName, results);
+        }
+    }
+}
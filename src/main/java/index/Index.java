@@ -10,8 +10,11 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.Duration;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.function.IntPredicate;
+import java.util.stream.Collectors;
 
 import static benchmark.QueryBench.queryThreads;
 
@@ -51,12 +54,90 @@ public interface Index extends AutoCloseable {
 
     record Parameters(String provider, Map<String, String> buildParameters) {}
     
-    enum Phase { build, commit, merge }
+    /**
+     * {@code flush} is the graph build of one Lucene segment, until its writer flushes it.
+     * {@code reorder} is the renumbering of the JVector graph nodes before it is written.
+     * {@code load} reads back a partially built JVector graph, {@code checkpoint} saves it during the build.
+     */
+    enum Phase { build, commit, merge, compress, flush, reorder, load, checkpoint }
   }
 
   interface Querier extends Index {
 
-    List<Integer> query(Object vector, int k, boolean ensureIds) throws IOException;
+    /**
+     * Writes the ids of the (at most) {@code k} nearest neighbors and their scores, best first,
+     * into caller-provided buffers of length {@code >= k}, so that nothing is allocated per result.
+     *
+     * @return the number of results written
+     */
+    int query(Object vector, int k, boolean ensureIds, int[] ids, float[] scores) throws IOException;
+
+    /**
+     * Answers a batch of queries, writing the results of the i-th vector into {@code ids[i]} and {@code scores[i]}
+     * and their number into {@code counts[i]}. Implementations can share the per-query setup across the batch.
+     */
+    default void queryBatch(List<?> vectors, int k, boolean ensureIds, int[][] ids, float[][] scores, int[] counts)
+        throws IOException {
+      for (int i = 0; i < vectors.size(); i++) {
+        counts[i] = query(vectors.get(i), k, ensureIds, ids[i], scores[i]);
+      }
+    }
+
+    /**
+     * Switches to other query parameters on the open index, e.g. between two runs of a parameter sweep.
+     * Must not be called while queries are running.
+     *
+     * @return false if the parameters cannot be applied without reopening the index, which is then left unchanged
+     */
+    default boolean reconfigure(Map<String, String> queryParameters) {
+      return false;
+    }
+
+    /**
+     * Called by the benchmark once the warmup queries are done, before the measured ones.
+     */
+    default void endWarmup() throws IOException {}
+
+    /**
+     * @return the counters of the in-memory cache of the index since the end of the warmup, or null without cache
+     */
+    default CacheStats cacheStats() {
+      return null;
+    }
+
+    /**
+     * @param hits lookups answered by the cache
+     * @param misses lookups read from disk
+     * @param bytes size of the cached data
+     */
+    record CacheStats(long hits, long misses, long bytes) {
+      public double hitRate() {
+        return (double) hits / (hits + misses);
+      }
+    }
+
+    /**
+     * @return the base vectors of the dataset that can be results of the queries, or null if all of them can be
+     */
+    default Filter filter() {
+      return null;
+    }
+
+    /**
+     * @param description identifies the accepted vectors among the base vectors of the dataset
+     * @param accepts whether the base vector of a dataset ordinal is accepted
+     */
+    record Filter(String description, IntPredicate accepts) {}
+
+    default int[] queryIds(Object vector, int k, boolean ensureIds) throws IOException {
+      var ids = new int[k];
+      var count = query(vector, k, ensureIds, ids, new float[k]);
+      return count == k ? ids : Arrays.copyOf(ids, count);
+    }
+
+    default List<Integer> query(Object vector, int k, boolean ensureIds) throws IOException {
+      return Arrays.stream(queryIds(vector, k, ensureIds)).boxed().collect(Collectors.toList());
+    }
     
     static Querier fromParameters(
             DataSetVector dataset,
@@ -82,4 +163,45 @@ public interface Index extends AutoCloseable {
         Map<String, String> buildParameters,
         Map<String, String> queryParameters) { }
   }
+
+  /**
+   * Index taking writes while it is queried, as in a service receiving continuous inserts and deletes.
+   * Its vectors are the base vectors of the dataset, identified by their ordinal, which the queries return.
+   * Writes and queries can run concurrently from any number of threads.
+   */
+  interface Live extends Querier {
+
+    /**
+     * Adds the base vector of {@code ordinal}, which must not have been added before.
+     */
+    void insert(int ordinal) throws IOException;
+
+    /**
+     * Removes the vector of {@code ordinal}, which must have been added, from the results of the next queries.
+     */
+    void delete(int ordinal) throws IOException;
+
+    /**
+     * Makes the writes done so far visible to the next queries, if they are not as soon as they return.
+     */
+    default void refresh() throws IOException {}
+
+    static Live fromParameters(
+        DataSetVector dataset,
+        Path indexesPath,
+        String provider,
+        Map<String, String> buildParameters,
+        Map<String, String> queryParameters)
+        throws IOException {
+      var parameters = new Querier.Parameters(provider, buildParameters, queryParameters);
+      var datasetPath = indexesPath.resolve(dataset.name());
+      Files.createDirectories(datasetPath);
+
+      return switch (provider) {
+        case "lucene" -> LuceneIndex.Live.create((DataSetLucene) dataset, datasetPath, parameters);
+        case "jvector" -> JVectorIndex.Live.create((DataSetJVector) dataset, parameters);
+        default -> throw new RuntimeException("unknown index provider: " + provider);
+      };
+    }
+  }
 }
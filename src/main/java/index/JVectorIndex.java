@@ -1,10 +1,15 @@
 package index;
 
-import io.github.jbellis.jvector.graph.disk.CachingGraphIndex;
 import io.github.jbellis.jvector.graph.disk.OnDiskGraphIndex;
+import io.github.jbellis.jvector.graph.SearchResult;
+import io.github.jbellis.jvector.graph.similarity.SearchScoreProvider;
+import io.github.jbellis.jvector.pq.PQVectors;
+import io.github.jbellis.jvector.pq.ProductQuantization;
+import io.github.jbellis.jvector.vector.types.ByteSequence;
 import io.github.jbellis.jvector.vector.types.VectorFloat;
 import util.ProgressBar;
 import util.Records;
+import util.SyntheticAttributes;
 import com.google.common.base.Preconditions;
 import com.indeed.util.mmap.MMapBuffer;
 import io.github.jbellis.jvector.disk.RandomAccessReader;
@@ -14,11 +19,18 @@ import io.github.jbellis.jvector.graph.GraphIndexBuilder;
 import io.github.jbellis.jvector.graph.GraphSearcher;
 import io.github.jbellis.jvector.graph.RandomAccessVectorValues;
 import io.github.jbellis.jvector.util.Bits;
+import io.github.jbellis.jvector.util.FixedBitSet;
 import io.github.jbellis.jvector.vector.VectorSimilarityFunction;
 import jvector.DataSetJVector;
+import jvector.GraphCheckpoint;
+import jvector.GraphReordering;
 import jvector.MMapReader;
+import jvector.MemorySegmentReader;
+import jvector.NodeCacheGraphIndex;
 import org.apache.commons.io.FileUtils;
 
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.nio.ByteOrder;
 import java.nio.channels.FileChannel;
@@ -26,25 +38,79 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.Duration;
 import java.time.Instant;
-import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ForkJoinPool;
-import java.util.stream.Collectors;
+import java.util.function.Supplier;
 import java.util.stream.IntStream;
 
 public class JVectorIndex {
   private static final String GRAPH_FILE = "graph.bin";
   private static final String COMPRESSED_VECTOR_FILE_FORMAT = "compressed-vectors-%s.bin";
+  private static final String ORDINALS_FILE = "ordinals.bin";
+  private static final String CHECKPOINT_FILE = "checkpoint.bin";
+  private static final int PQ_CLUSTERS = 256;
+  private static final String INDEED_READER = "indeed";
+  private static final String SEGMENT_READER = "segment";
   public static final String JVECTOR_PREFIX = "JVECTOR-";
 
-  public record BuildParameters(int M, int beamWidth, float neighborOverflow, float alpha) {}
-
-  public record QueryParameters(int numCandidates) {}
+  /**
+   * @param pqFactor number of dimensions per product quantization subspace, 0 disables compression
+   * @param reorder renumbering of the nodes in the on-disk graph, one of {@link GraphReordering},
+   *     whose old to new ordinals map is written next to it
+   * @param numVectors number of first vectors of the dataset that are indexed, 0 for all
+   * @param appendFrom if not 0, the graph of the index of the first {@code appendFrom} vectors, built beforehand
+   *     with the same parameters, is loaded and the next vectors are added to it
+   * @param checkpoint number of nodes added between two saves of the partially built graph, from which
+   *     an interrupted build resumes, 0 to never save it
+   */
+  public record BuildParameters(
+      int M,
+      int beamWidth,
+      float neighborOverflow,
+      float alpha,
+      @Records.Default("0") int pqFactor,
+      @Records.Default("none") String reorder,
+      @Records.Default("0") int numVectors,
+      @Records.Default("0") int appendFrom,
+      @Records.Default("0") int checkpoint) {}
+
+  /**
+   * @param rerankFactor with compressed vectors, the graph is traversed with approximate scores
+   *     keeping {@code numCandidates * rerankFactor} candidates, which are then reranked with the full vectors
+   * @param diskVectors score with the full vectors stored in the on-disk graph instead of the dataset ones
+   * @param reader how the on-disk graph is read: {@code indeed} ({@link MMapReader})
+   *     or {@code segment} ({@link MemorySegmentReader})
+   * @param madvise access pattern hint of the {@code segment} reader, one of {@link MemorySegmentReader.Advice}
+   * @param cache which nodes have their neighbors cached in memory, one of {@link NodeCacheGraphIndex.Policy}
+   * @param cacheDepth maximum distance from the entry node of the nodes cached by the {@code depth} policy
+   * @param cacheMB size of the nodes cached by the {@code bytes} and {@code hot} policies
+   * @param selectivity percentage of the base vectors the results are restricted to,
+   *     selected by their {@link SyntheticAttributes}: the others still route the search but are left out of the results
+   */
+  public record QueryParameters(
+      int numCandidates,
+      @Records.Default("1") float rerankFactor,
+      @Records.Default("false") boolean diskVectors,
+      @Records.Default(INDEED_READER) String reader,
+      @Records.Default("normal") String madvise,
+      @Records.Default("depth") String cache,
+      @Records.Default(DEFAULT_CACHE_DEPTH) int cacheDepth,
+      @Records.Default("0") int cacheMB,
+      @Records.Default("100") float selectivity) {}
+
+  private static final String DEFAULT_CACHE_DEPTH = "3";
 
   public static final class Builder implements Index.Builder {
 
+    private final Path indexesPath;
     private final Path indexPath;
     private final RandomAccessVectorValues vectors;
+    private final VectorSimilarityFunction similarityFunction;
     private final GraphIndexBuilder indexBuilder;
     private final BuildParameters buildParams;
     private final int numThreads;
@@ -59,6 +125,13 @@ public class JVectorIndex {
 
       var buildParams =
           Records.fromMap(parameters.buildParameters(), BuildParameters.class, "build parameters");
+      Preconditions.checkArgument(
+          buildParams.numVectors <= vectors.size(), "the dataset only has %s vectors", vectors.size());
+      if (buildParams.numVectors > 0) {
+        vectors = firstVectors(vectors, buildParams.numVectors);
+      }
+      Preconditions.checkArgument(
+          buildParams.appendFrom < vectors.size(), "no vector to append after the first %s", buildParams.appendFrom);
 
       var indexBuilder =
           new GraphIndexBuilder(
@@ -72,8 +145,10 @@ public class JVectorIndex {
       var path = indexesPath.resolve(buildDescription(buildParams));
       Files.createDirectories(path);
 
+      this.indexesPath = indexesPath;
       this.indexPath = path;
       this.vectors = vectors;
+      this.similarityFunction = vectorSimilarityFunction;
       this.indexBuilder = indexBuilder;
       this.buildParams = buildParams;
       this.numThreads = numThreads;
@@ -84,42 +159,153 @@ public class JVectorIndex {
       
       var pool = new ForkJoinPool(this.numThreads);
       var size = this.vectors.size();
+      var phases = new ArrayList<BuildPhase>();
+
+      // nodes are added in order, a checkpoint holding the first nodes up to the one it was saved after
+      var checkpointPath = indexPath.resolve(CHECKPOINT_FILE);
+      int start = 0;
+      if (Files.exists(checkpointPath) || buildParams.appendFrom > 0) {
+        var loadStart = Instant.now();
+        if (!Files.exists(checkpointPath)) {
+          writeBaseCheckpoint(checkpointPath);
+        }
+        start = GraphCheckpoint.load(this.indexBuilder, checkpointPath);
+        System.out.println("loaded " + start + " nodes from " + checkpointPath);
+        phases.add(new BuildPhase(Phase.load, Duration.between(loadStart, Instant.now())));
+      }
 
       var buildStart = Instant.now();
-      try (var progress = ProgressBar.create("building", size)) {
-        pool.submit(
-                () -> {
-                  IntStream.range(0, size)
-                      .parallel()
-                      .forEach(
-                          i -> {
-                            this.indexBuilder.addGraphNode(i, this.vectors);
-                            progress.inc();
-                          });
-                })
-            .join();
+      var checkpointDuration = Duration.ZERO;
+      // vector values may be shared, so each thread reads through its own copy
+      var threadVectors = this.vectors.threadLocalSupplier();
+      var interval = buildParams.checkpoint > 0 ? buildParams.checkpoint : size;
+      try (var progress = ProgressBar.create("building", size - start)) {
+        for (int from = start; from < size; from += interval) {
+          var range = IntStream.range(from, Math.min(size, from + interval));
+          pool.submit(
+                  () -> {
+                    range
+                        .parallel()
+                        .forEach(
+                            i -> {
+                              this.indexBuilder.addGraphNode(i, threadVectors.get());
+                              progress.inc();
+                            });
+                  })
+              .join();
+
+          // no insertion is in progress between two ranges
+          if (buildParams.checkpoint > 0 && from + interval < size) {
+            var checkpointStart = Instant.now();
+            GraphCheckpoint.write(this.indexBuilder.getGraph(), checkpointPath);
+            checkpointDuration = checkpointDuration.plus(Duration.between(checkpointStart, Instant.now()));
+          }
+        }
       }
 
       this.indexBuilder.cleanup();
       var buildEnd = Instant.now();
 
+      var graph = this.indexBuilder.getGraph();
+      phases.add(new BuildPhase(Phase.build, Duration.between(buildStart, buildEnd).minus(checkpointDuration)));
+      if (buildParams.checkpoint > 0) {
+        phases.add(new BuildPhase(Phase.checkpoint, checkpointDuration));
+      }
+
+      var reordering = GraphReordering.valueOf(buildParams.reorder);
+      int[] oldToNew = null;
+      if (reordering != GraphReordering.none) {
+        System.out.println("finished building index, reordering");
+        var reorderStart = Instant.now();
+        oldToNew = reordering.oldToNew(graph);
+        GraphReordering.write(oldToNew, indexPath.resolve(ORDINALS_FILE));
+        phases.add(new BuildPhase(Phase.reorder, Duration.between(reorderStart, Instant.now())));
+      }
+
       System.out.println("finished building index, committing");
       var commitStart = Instant.now();
       var path = indexPath.resolve(GRAPH_FILE);
-      
-      var graph = this.indexBuilder.getGraph();
-      OnDiskGraphIndex.write(graph, vectors, path);
+      if (oldToNew == null) {
+        OnDiskGraphIndex.write(graph, vectors, path);
+      } else {
+        // the writer reads the vector of every node by its old ordinal and renumbers the neighbors
+        var ordinalMap = new HashMap<Integer, Integer>(2 * oldToNew.length);
+        for (int i = 0; i < oldToNew.length; i++) {
+          ordinalMap.put(i, oldToNew[i]);
+        }
+        OnDiskGraphIndex.write(graph, vectors, ordinalMap, path);
+      }
+      Files.deleteIfExists(checkpointPath);
       var commitEnd = Instant.now();
+      phases.add(new BuildPhase(Phase.commit, Duration.between(commitStart, commitEnd)));
+
+      if (buildParams.pqFactor > 0) {
+        System.out.println("compressing vectors");
+        var compressStart = Instant.now();
+        writeCompressedVectors(pool, threadVectors, oldToNew);
+        var compressEnd = Instant.now();
+        phases.add(new BuildPhase(Phase.compress, Duration.between(compressStart, compressEnd)));
+      }
 
-      return new BuildSummary(
-          List.of(
-              new BuildPhase(Phase.build, Duration.between(buildStart, buildEnd)),
-              new BuildPhase(Phase.commit, Duration.between(commitStart, commitEnd))));
+      return new BuildSummary(phases);
+    }
+
+    /**
+     * Saves the graph of the index of the first {@code appendFrom} vectors as the checkpoint to resume from.
+     */
+    private void writeBaseCheckpoint(Path checkpointPath) throws IOException {
+      var baseParams = new BuildParameters(
+          buildParams.M, buildParams.beamWidth, buildParams.neighborOverflow, buildParams.alpha,
+          buildParams.pqFactor, "none", buildParams.appendFrom, 0, 0);
+      var basePath = indexesPath.resolve(buildDescription(baseParams)).resolve(GRAPH_FILE);
+      Preconditions.checkArgument(
+          Files.exists(basePath), "no index of the first %s vectors to append to at %s", buildParams.appendFrom, basePath);
+      try (var readerSupplier = new MMapReaderSupplier(basePath);
+          var base = OnDiskGraphIndex.load(readerSupplier, 0)) {
+        Preconditions.checkArgument(
+            base.size() == buildParams.appendFrom, "index at %s has %s nodes", basePath, base.size());
+        GraphCheckpoint.write(base, checkpointPath);
+      }
+    }
+
+    /**
+     * @param oldToNew new ordinal of every vector in the graph, which the codes follow, or null
+     */
+    private void writeCompressedVectors(
+        ForkJoinPool pool, Supplier<RandomAccessVectorValues> threadVectors, int[] oldToNew) throws IOException {
+      var subspaces = Math.max(1, this.vectors.dimension() / buildParams.pqFactor);
+      var pq = ProductQuantization.compute(
+          this.vectors, subspaces, PQ_CLUSTERS, similarityFunction == VectorSimilarityFunction.EUCLIDEAN);
+
+      // ProductQuantization.encodeAll reads the vectors concurrently without copying the shared values
+      var encoded =
+          pool.submit(
+                  () -> IntStream.range(0, this.vectors.size())
+                      .parallel()
+                      .mapToObj(i -> pq.encode(threadVectors.get().getVector(i)))
+                      .toArray(ByteSequence<?>[]::new))
+              .join();
+      if (oldToNew != null) {
+        var renumbered = new ByteSequence<?>[encoded.length];
+        for (int i = 0; i < encoded.length; i++) {
+          renumbered[oldToNew[i]] = encoded[i];
+        }
+        encoded = renumbered;
+      }
+
+      var path = indexPath.resolve(String.format(COMPRESSED_VECTOR_FILE_FORMAT, buildParams.pqFactor));
+      try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+        new PQVectors(pq, encoded).write(out);
+      }
     }
 
     @Override
     public String description() {
-      return buildDescription(this.buildParams);
+      var description = buildDescription(this.buildParams) + compressionDescription(this.buildParams);
+      if (buildParams.checkpoint > 0) {
+        description += "-checkpoint:" + buildParams.checkpoint;
+      }
+      return description;
     }
 
     @Override
@@ -132,33 +318,62 @@ public class JVectorIndex {
 
     private static String buildDescription(BuildParameters buildParams) {
       return String.format(
-              "%sM:%s-beamWidth:%s-neighborOverflow:%s-alpha:%s",
+              "%sM:%s-beamWidth:%s-neighborOverflow:%s-alpha:%s%s%s",
               JVECTOR_PREFIX,
-              buildParams.M, buildParams.beamWidth, buildParams.neighborOverflow, buildParams.alpha);
+              buildParams.M, buildParams.beamWidth, buildParams.neighborOverflow, buildParams.alpha,
+              reorderDescription(buildParams),
+              vectorsDescription(buildParams));
     }
   }
 
   public static class Querier implements Index.Querier {
     private final ReaderSupplier readerSupplier;
-    private final GraphIndex graph;
+    private final NodeCacheGraphIndex graph;
     private final VectorSimilarityFunction similarityFunction;
     private final BuildParameters buildParams;
-    private final QueryParameters queryParams;
-    private final DataSetJVector dataSet;
+    private QueryParameters queryParams;
+    private final Supplier<RandomAccessVectorValues> baseVectors;
+    private final PQVectors compressedVectors;
+    // old ordinal of every node of a reordered graph, null if the graph has the dataset ordinals
+    private final int[] newToOld;
+    private final int datasetSize;
+    // nodes accepted by the filter of the query parameters
+    private Bits acceptedNodes;
+    private final ThreadLocal<GraphSearcher> searchers;
+    private final Queue<GraphSearcher> openSearchers = new ConcurrentLinkedQueue<>();
 
     public Querier(
             DataSetJVector dataSet,
             ReaderSupplier readerSupplier,
-        GraphIndex graph,
+        NodeCacheGraphIndex graph,
         VectorSimilarityFunction similarityFunction,
         BuildParameters buildParams,
-        QueryParameters queryParams) {
+        QueryParameters queryParams,
+        PQVectors compressedVectors,
+        int[] newToOld) {
       this.readerSupplier = readerSupplier;
       this.graph = graph;
       this.similarityFunction = similarityFunction;
       this.buildParams = buildParams;
       this.queryParams = queryParams;
-      this.dataSet = dataSet;
+      // vectors are read from the graph when compressed or explicitly requested, the dataset ones are not needed
+      var datasetVectors = newToOld == null
+          ? dataSet.getBaseRavv()
+          : GraphReordering.renumbered(dataSet.getBaseRavv(), newToOld);
+      this.baseVectors =
+          compressedVectors == null && !queryParams.diskVectors
+              ? datasetVectors.threadLocalSupplier()
+              : null;
+      this.compressedVectors = compressedVectors;
+      this.newToOld = newToOld;
+      this.datasetSize = dataSet.getBaseRavv().size();
+      this.acceptedNodes = acceptedNodes(queryParams.selectivity);
+      // a searcher owns its graph view, visited set and candidate queues, which are reset on each search
+      this.searchers = ThreadLocal.withInitial(() -> {
+        var searcher = new GraphSearcher(graph);
+        openSearchers.add(searcher);
+        return searcher;
+      });
     }
 
     public static Index.Querier create(
@@ -185,56 +400,367 @@ public class JVectorIndex {
             case EUCLIDEAN -> VectorSimilarityFunction.EUCLIDEAN;
           };
 
-      var readerSupplier = new MMapReaderSupplier(path);
+      PQVectors compressedVectors = null;
+      if (buildParams.pqFactor > 0) {
+        var compressedPath = indexPath.resolve(String.format(COMPRESSED_VECTOR_FILE_FORMAT, buildParams.pqFactor));
+        Preconditions.checkArgument(
+            compressedPath.toFile().exists(), "compressed vectors do not exist at %s", compressedPath);
+        try (var compressedSupplier = new MMapReaderSupplier(compressedPath);
+            var reader = compressedSupplier.get()) {
+          compressedVectors = PQVectors.load(reader);
+        }
+      }
+
+      int[] newToOld = null;
+      if (GraphReordering.valueOf(buildParams.reorder) != GraphReordering.none) {
+        newToOld = GraphReordering.readNewToOld(indexPath.resolve(ORDINALS_FILE));
+      }
+
+      var advice = MemorySegmentReader.Advice.valueOf(queryParams.madvise);
+      ReaderSupplier readerSupplier =
+          switch (queryParams.reader) {
+            case INDEED_READER -> {
+              Preconditions.checkArgument(
+                  advice == MemorySegmentReader.Advice.normal, "madvise requires the %s reader", SEGMENT_READER);
+              yield new MMapReaderSupplier(path);
+            }
+            case SEGMENT_READER -> new MemorySegmentReader.Supplier(path, advice);
+            default -> throw new IllegalArgumentException("unknown reader: " + queryParams.reader);
+          };
       var onDiskGraph = OnDiskGraphIndex.load(readerSupplier, 0);
-      
-      // TODO ... check this rows
-      var cachingGraph = new CachingGraphIndex(onDiskGraph);
+
+      var cachePolicy = NodeCacheGraphIndex.Policy.valueOf(queryParams.cache);
+      Preconditions.checkArgument(
+          queryParams.cacheMB > 0 || cachePolicy != NodeCacheGraphIndex.Policy.bytes
+              && cachePolicy != NodeCacheGraphIndex.Policy.hot,
+          "the %s cache requires cacheMB", cachePolicy);
+      var cachingGraph = new NodeCacheGraphIndex(
+          onDiskGraph, cachePolicy, queryParams.cacheDepth, queryParams.cacheMB * 1024L * 1024);
       return new JVectorIndex.Querier(
           queryVectors,
           readerSupplier,
           cachingGraph,
           vectorSimilarityFunction,
           buildParams,
-          queryParams);
+          queryParams,
+          compressedVectors,
+          newToOld);
     }
 
+    /**
+     * Only the search parameters can change, the ones selecting how the graph and its vectors are read
+     * are fixed when the querier is created.
+     */
     @Override
-    public List<Integer> query(Object vectorObj, int k, boolean ensureIds) throws IOException {
-      VectorFloat<?> vector = (VectorFloat<?>) vectorObj;
-      
-      var results =
-          GraphSearcher.search(
-                  vector, 
-                  queryParams.numCandidates,
-                  dataSet.getBaseRavv(),
-                  similarityFunction, 
-                  graph,
-                  Bits.ALL);
+    public boolean reconfigure(Map<String, String> queryParameters) {
+      var params = Records.fromMap(queryParameters, QueryParameters.class, "query parameters");
+      if (params.diskVectors != queryParams.diskVectors
+          || !params.reader.equals(queryParams.reader)
+          || !params.madvise.equals(queryParams.madvise)
+          || !params.cache.equals(queryParams.cache)
+          || params.cacheDepth != queryParams.cacheDepth
+          || params.cacheMB != queryParams.cacheMB) {
+        return false;
+      }
+      this.queryParams = params;
+      this.acceptedNodes = acceptedNodes(params.selectivity);
+      return true;
+    }
 
-      
-      return Arrays.stream(results.getNodes())
-          .map(nodeScore -> nodeScore.node)
-          .limit(k)
-          .collect(Collectors.toList());
+    private Bits acceptedNodes(float selectivity) {
+      if (selectivity == 100) {
+        return Bits.ALL;
+      }
+      var filter = SyntheticAttributes.filter(selectivity);
+      var accepted = new FixedBitSet(graph.size());
+      for (int node = 0; node < graph.size(); node++) {
+        if (filter.test(newToOld == null ? node : newToOld[node])) {
+          accepted.set(node);
+        }
+      }
+      return accepted;
+    }
+
+    @Override
+    public Filter filter() {
+      // an index of the first vectors only has these to find, which the ground truth of the dataset ignores
+      var size = graph.size();
+      var partial = size < datasetSize;
+      if (queryParams.selectivity == 100) {
+        return partial ? new Filter("numVectors:" + size, ordinal -> ordinal < size) : null;
+      }
+      var selected = SyntheticAttributes.filter(queryParams.selectivity);
+      var description = "selectivity:" + queryParams.selectivity;
+      return partial
+          ? new Filter("numVectors:" + size + "-" + description, ordinal -> ordinal < size && selected.test(ordinal))
+          : new Filter(description, selected);
+    }
+
+    @Override
+    public int query(Object vectorObj, int k, boolean ensureIds, int[] ids, float[] scores) throws IOException {
+      var searcher = searchers.get();
+      var vectors = baseVectors == null ? null : baseVectors.get();
+      return search(searcher, vectors, (VectorFloat<?>) vectorObj, k, ids, scores);
+    }
+
+    @Override
+    public void queryBatch(List<?> vectorObjs, int k, boolean ensureIds, int[][] ids, float[][] scores, int[] counts)
+        throws IOException {
+      var searcher = searchers.get();
+      var vectors = baseVectors == null ? null : baseVectors.get();
+      for (int i = 0; i < vectorObjs.size(); i++) {
+        counts[i] = search(searcher, vectors, (VectorFloat<?>) vectorObjs.get(i), k, ids[i], scores[i]);
+      }
+    }
+
+    private int search(
+        GraphSearcher searcher,
+        RandomAccessVectorValues vectors,
+        VectorFloat<?> vector,
+        int k,
+        int[] ids,
+        float[] scores) throws IOException {
+      var view = (GraphIndex.ScoringView) searcher.getView();
+
+      SearchResult results;
+      if (compressedVectors != null) {
+        // traverse the graph scoring the in-memory PQ codes,
+        // then rerank the best candidates with the full vectors stored in the on-disk graph
+        var rerankK = Math.max(queryParams.numCandidates, (int) (queryParams.numCandidates * queryParams.rerankFactor));
+        var scoreProvider =
+            new SearchScoreProvider(
+                compressedVectors.precomputedScoreFunctionFor(vector, similarityFunction),
+                view.rerankerFor(vector, similarityFunction));
+        results = searcher.search(scoreProvider, queryParams.numCandidates, rerankK, 0.0f, 0.0f, acceptedNodes);
+      } else if (vectors == null) {
+        // score with the full vectors stored inline in the on-disk graph
+        var scoreProvider = new SearchScoreProvider(view.rerankerFor(vector, similarityFunction));
+        results = searcher.search(scoreProvider, queryParams.numCandidates, acceptedNodes);
+      } else {
+        var scoreProvider = SearchScoreProvider.exact(vector, similarityFunction, vectors);
+        results = searcher.search(scoreProvider, queryParams.numCandidates, acceptedNodes);
+      }
+
+      var nodes = results.getNodes();
+      var count = Math.min(k, nodes.length);
+      for (int i = 0; i < count; i++) {
+        ids[i] = newToOld == null ? nodes[i].node : newToOld[nodes[i].node];
+        scores[i] = nodes[i].score;
+      }
+      return count;
+    }
+
+    @Override
+    public void endWarmup() throws IOException {
+      graph.endWarmup();
+    }
+
+    @Override
+    public CacheStats cacheStats() {
+      if (graph.policy() == NodeCacheGraphIndex.Policy.none) {
+        return null;
+      }
+      return new CacheStats(graph.hits(), graph.misses(), graph.cachedBytes());
     }
 
     @Override
     public void close() throws Exception {
+      for (var searcher : openSearchers) {
+        searcher.close();
+      }
       this.graph.close();
       this.readerSupplier.close();
     }
 
     @Override
     public String description() {
-      return String.format(
-              JVECTOR_PREFIX + "M:%s-beamWidth:%s-neighborOverflow:%s-alpha:%s_numCandidates:%s",
+      var description = String.format(
+              JVECTOR_PREFIX + "M:%s-beamWidth:%s-neighborOverflow:%s-alpha:%s%s%s%s_numCandidates:%s",
           buildParams.M,
           buildParams.beamWidth,
           buildParams.neighborOverflow,
           buildParams.alpha,
+          reorderDescription(buildParams),
+          vectorsDescription(buildParams),
+          compressionDescription(buildParams),
           queryParams.numCandidates);
+      if (compressedVectors != null) {
+        description += "-rerankFactor:" + queryParams.rerankFactor;
+      } else if (queryParams.diskVectors) {
+        description += "-diskVectors:true";
+      }
+      if (!queryParams.reader.equals(INDEED_READER)) {
+        description += "-reader:" + queryParams.reader;
+      }
+      if (!queryParams.madvise.equals("normal")) {
+        description += "-madvise:" + queryParams.madvise;
+      }
+      switch (NodeCacheGraphIndex.Policy.valueOf(queryParams.cache)) {
+        case none, hot, bytes -> description += "-cache:" + queryParams.cache;
+        case depth -> {}
+      }
+      if (queryParams.cacheDepth != Integer.parseInt(DEFAULT_CACHE_DEPTH)) {
+        description += "-cacheDepth:" + queryParams.cacheDepth;
+      }
+      if (queryParams.cacheMB != 0) {
+        description += "-cacheMB:" + queryParams.cacheMB;
+      }
+      if (queryParams.selectivity != 100) {
+        description += "-selectivity:" + queryParams.selectivity;
+      }
+      return description;
+    }
+  }
+
+  /**
+   * Graph kept on heap by its builder, which inserts vectors into it while it is searched.
+   * Deleted nodes are only marked: they keep routing the searches, which leave them out of the results,
+   * since the graph cannot be cleaned up while insertions are running.
+   */
+  public static final class Live implements Index.Live {
+    private final GraphIndexBuilder indexBuilder;
+    private final Supplier<RandomAccessVectorValues> threadVectors;
+    private final VectorSimilarityFunction similarityFunction;
+    private final BuildParameters buildParams;
+    private QueryParameters queryParams;
+    private final ThreadLocal<GraphSearcher> searchers;
+    private final Queue<GraphSearcher> openSearchers = new ConcurrentLinkedQueue<>();
+
+    private Live(
+        GraphIndexBuilder indexBuilder,
+        Supplier<RandomAccessVectorValues> threadVectors,
+        VectorSimilarityFunction similarityFunction,
+        BuildParameters buildParams,
+        QueryParameters queryParams) {
+      this.indexBuilder = indexBuilder;
+      this.threadVectors = threadVectors;
+      this.similarityFunction = similarityFunction;
+      this.buildParams = buildParams;
+      this.queryParams = queryParams;
+      this.searchers = ThreadLocal.withInitial(() -> {
+        var searcher = new GraphSearcher(indexBuilder.getGraph());
+        openSearchers.add(searcher);
+        return searcher;
+      });
     }
+
+    public static Live create(DataSetJVector dataSet, Parameters parameters) {
+      var buildParams =
+          Records.fromMap(parameters.buildParameters(), BuildParameters.class, "build parameters");
+      var queryParams =
+          Records.fromMap(parameters.queryParameters(), QueryParameters.class, "query parameters");
+      Preconditions.checkArgument(
+          buildParams.pqFactor == 0 && buildParams.reorder.equals("none")
+              && buildParams.numVectors == 0 && buildParams.appendFrom == 0 && buildParams.checkpoint == 0,
+          "a live index is only built from M, beamWidth, neighborOverflow and alpha");
+      Preconditions.checkArgument(queryParams.selectivity == 100, "a live index is not filtered");
+
+      var vectors = dataSet.getBaseRavv();
+      var indexBuilder =
+          new GraphIndexBuilder(
+              vectors,
+              dataSet.similarityFunction(),
+              buildParams.M,
+              buildParams.beamWidth,
+              buildParams.neighborOverflow,
+              buildParams.alpha);
+      // vector values may be shared, so each thread reads through its own copy
+      return new JVectorIndex.Live(
+          indexBuilder, vectors.threadLocalSupplier(), dataSet.similarityFunction(), buildParams, queryParams);
+    }
+
+    @Override
+    public void insert(int ordinal) {
+      indexBuilder.addGraphNode(ordinal, threadVectors.get().getVector(ordinal));
+    }
+
+    @Override
+    public void delete(int ordinal) {
+      indexBuilder.markNodeDeleted(ordinal);
+    }
+
+    @Override
+    public int query(Object vectorObj, int k, boolean ensureIds, int[] ids, float[] scores) throws IOException {
+      var searcher = searchers.get();
+      var scoreProvider =
+          SearchScoreProvider.exact((VectorFloat<?>) vectorObj, similarityFunction, threadVectors.get());
+      // read at every search, to leave out the nodes deleted since the previous one
+      var liveNodes = searcher.getView().liveNodes();
+      var nodes = searcher.search(scoreProvider, queryParams.numCandidates, liveNodes).getNodes();
+      var count = Math.min(k, nodes.length);
+      for (int i = 0; i < count; i++) {
+        ids[i] = nodes[i].node;
+        scores[i] = nodes[i].score;
+      }
+      return count;
+    }
+
+    /**
+     * Only {@code numCandidates} applies to the on-heap graph, the other query parameters are ignored.
+     */
+    @Override
+    public boolean reconfigure(Map<String, String> queryParameters) {
+      this.queryParams = Records.fromMap(queryParameters, QueryParameters.class, "query parameters");
+      return true;
+    }
+
+    @Override
+    public String description() {
+      return JVectorIndex.Builder.buildDescription(buildParams) + "_numCandidates:" + queryParams.numCandidates;
+    }
+
+    @Override
+    public void close() throws Exception {
+      for (var searcher : openSearchers) {
+        searcher.close();
+      }
+      indexBuilder.close();
+    }
+  }
+
+  private static String compressionDescription(BuildParameters buildParams) {
+    return buildParams.pqFactor > 0 ? "-pqFactor:" + buildParams.pqFactor : "";
+  }
+
+  private static String reorderDescription(BuildParameters buildParams) {
+    return buildParams.reorder.equals("none") ? "" : "-reorder:" + buildParams.reorder;
+  }
+
+  private static String vectorsDescription(BuildParameters buildParams) {
+    var description = buildParams.numVectors > 0 ? "-numVectors:" + buildParams.numVectors : "";
+    return buildParams.appendFrom > 0 ? description + "-appendFrom:" + buildParams.appendFrom : description;
+  }
+
+  /**
+   * @return a view of the first {@code count} vectors
+   */
+  private static RandomAccessVectorValues firstVectors(RandomAccessVectorValues vectors, int count) {
+    return new RandomAccessVectorValues() {
+      @Override
+      public int size() {
+        return count;
+      }
+
+      @Override
+      public int dimension() {
+        return vectors.dimension();
+      }
+
+      @Override
+      public VectorFloat<?> getVector(int node) {
+        return vectors.getVector(node);
+      }
+
+      @Override
+      public boolean isValueShared() {
+        return vectors.isValueShared();
+      }
+
+      @Override
+      public RandomAccessVectorValues copy() {
+        return firstVectors(vectors.copy(), count);
+      }
+    };
   }
 
   private static class MMapReaderSupplier implements ReaderSupplier {
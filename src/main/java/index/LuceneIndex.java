@@ -1,27 +1,37 @@
 package index;
 
 import com.google.common.base.Preconditions;
-import org.apache.lucene.codecs.lucene90.Lucene90Codec;
-import org.apache.lucene.codecs.lucene90.Lucene90HnswVectorsFormat;
 import org.apache.lucene.search.IndexSearcher;
-import org.apache.lucene.search.KnnVectorQuery;
+import org.apache.lucene.search.KnnFloatVectorQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TopDocs;
 import util.Exceptions;
 import util.ProgressBar;
 import util.Records;
+import util.SyntheticAttributes;
 import org.apache.commons.io.FileUtils;
-import org.apache.lucene.codecs.KnnVectorsFormat;
 import org.apache.lucene.document.Document;
-import org.apache.lucene.document.KnnVectorField;
-import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.IntPoint;
+import org.apache.lucene.document.KnnFloatVectorField;
+import org.apache.lucene.document.NumericDocValuesField;
 import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LogByteSizeMergePolicy;
+import org.apache.lucene.index.NoMergePolicy;
+import org.apache.lucene.index.ConcurrentMergeScheduler;
 import org.apache.lucene.index.TieredMergePolicy;
 import org.apache.lucene.index.VectorSimilarityFunction;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.MMapDirectory;
 import lucene.CustomVectorProvider;
+import lucene.LuceneUtil;
+import lucene.VectorFormat;
+import util.DataSetLucene;
 import util.DataSetVector;
 
 import java.io.IOException;
@@ -29,8 +39,11 @@ import java.nio.file.Path;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.ForkJoinPool;
 import java.util.stream.IntStream;
 
@@ -38,13 +51,47 @@ public final class LuceneIndex {
 
   public static final String LUCENE_PREFIX = "LUCENE-";
 
+  /**
+   * @param writers number of writers building their own segment in parallel, from a contiguous range of vectors,
+   *     before the segments are added to the index; with a single writer all the threads share it
+   * @param ramBufferMB RAM buffer of each writer before it flushes a segment
+   * @param mergeThreads number of merges the force merge runs concurrently while it merges more than
+   *     {@code forceMerge} segments down to a single one; the graph of each merge is built by {@code numMergeWorkers}
+   * @param quantization quantization of the vectors searched in the graph, one of {@link VectorFormat}
+   * @param numMergeWorkers number of threads building the graph of every merged segment
+   * @param ordered keep the documents in the order of the vectors, so that every doc id is the vector ordinal:
+   *     the segments are sorted by id, only adjacent segments are merged, and a single writer adds the documents
+   *     from one thread, while several writers still add their contiguous ranges in parallel
+   * @param attributes index the {@link SyntheticAttributes} of the vectors as a point, for filtered queries
+   */
   public record HnswBuildParameters(
-      int maxConn, int beamWidth, int forceMerge) {}
-
-  public record HnswQueryParameters(int numCandidates) {}
-
+      int maxConn,
+      int beamWidth,
+      int forceMerge,
+      @Records.Default("1") int writers,
+      @Records.Default(DEFAULT_RAM_BUFFER_MB) int ramBufferMB,
+      @Records.Default("1") int mergeThreads,
+      @Records.Default("none") String quantization,
+      @Records.Default("1") int numMergeWorkers,
+      @Records.Default("false") boolean ordered,
+      @Records.Default("false") boolean attributes) {}
+
+  /**
+   * @param searchThreads number of threads searching the segments of one query in parallel,
+   *     on top of the {@code queryThreads} running queries concurrently; with 1 the query thread searches them in turn
+   * @param selectivity percentage of the vectors the results are restricted to, selected by their
+   *     {@link SyntheticAttributes}; the query explores the graph for accepted vectors only, and scores every one of
+   *     them instead when they are fewer than the graph search would visit
+   */
+  public record HnswQueryParameters(
+      int numCandidates,
+      @Records.Default("1") int searchThreads,
+      @Records.Default("100") float selectivity) {}
+
+  private static final String DEFAULT_RAM_BUFFER_MB = "40960";
   private static final String VECTOR_FIELD = "vector";
   private static final String ID_FIELD = "id";
+  private static final String ATTRIBUTE_FIELD = "attribute";
 
   public static final class Builder implements Index.Builder {
 
@@ -54,6 +101,7 @@ public final class LuceneIndex {
     private final HnswBuildParameters hnswParams;
     private final VectorSimilarityFunction similarityFunction;
     private final int numThreads;
+    private final ExecutorService mergeExecutor;
 
     public Builder(
             Path indexesPath,
@@ -78,25 +126,33 @@ public final class LuceneIndex {
 
       var directory = new MMapDirectory(path);
 
-      var codec = new Lucene90Codec() {
-        @Override
-        public KnnVectorsFormat getKnnVectorsFormatForField(String field) {
-          return new Lucene90HnswVectorsFormat(hnswParams.maxConn, hnswParams.beamWidth);
-        }
-      };
-
-      IndexWriterConfig config = new IndexWriterConfig()
-              .setCodec(codec)
-              .setUseCompoundFile(false)
-              .setMaxBufferedDocs(1000000000)
-              .setRAMBufferSizeMB(40 * 1024);
+      Preconditions.checkArgument(hnswParams.writers > 0, "writers must be positive");
+      Preconditions.checkArgument(hnswParams.mergeThreads > 0, "mergeThreads must be positive");
+      Preconditions.checkArgument(hnswParams.numMergeWorkers > 0, "numMergeWorkers must be positive");
+      var mergeExecutor = hnswParams.numMergeWorkers > 1
+          ? Executors.newFixedThreadPool(hnswParams.numMergeWorkers)
+          : null;
+      IndexWriterConfig config = writerConfig(hnswParams, mergeExecutor);
       
-      if (hnswParams.forceMerge != 0) {
+      if (hnswParams.ordered) {
+        // merges segments of consecutive ids into a sorted segment at the same place, unlike the tiered policy
+        var mergePolicy = new LogByteSizeMergePolicy();
+        mergePolicy.setMaxMergeMB(2048.0);
+        if (hnswParams.forceMerge != 0) {
+          mergePolicy.setMergeFactor(hnswParams.forceMerge);
+        }
+        config.setMergePolicy(mergePolicy);
+      } else if (hnswParams.forceMerge != 0) {
         TieredMergePolicy mergePolicy = new TieredMergePolicy();
         mergePolicy.setMaxMergedSegmentMB(2048.0);
         mergePolicy.setSegmentsPerTier(hnswParams.forceMerge);
         config.setMergePolicy(mergePolicy);
       }
+      if (hnswParams.mergeThreads > 1) {
+        var mergeScheduler = new ConcurrentMergeScheduler();
+        mergeScheduler.setMaxMergesAndThreads(hnswParams.mergeThreads, hnswParams.mergeThreads);
+        config.setMergeScheduler(mergeScheduler);
+      }
       
       var writer = new IndexWriter( directory, config );
 
@@ -106,14 +162,130 @@ public final class LuceneIndex {
       this.similarityFunction = similarity;
       this.hnswParams = hnswParams;
       this.numThreads = numThreads;
+      this.mergeExecutor = mergeExecutor;
+    }
+
+    private static IndexWriterConfig writerConfig(HnswBuildParameters hnswParams, ExecutorService mergeExecutor) {
+      var format = VectorFormat.valueOf(hnswParams.quantization).create(
+          hnswParams.maxConn, hnswParams.beamWidth, hnswParams.numMergeWorkers, mergeExecutor);
+
+      var config = new IndexWriterConfig()
+              .setCodec(VectorFormat.codec(format))
+              .setUseCompoundFile(false)
+              .setMaxBufferedDocs(1000000000)
+              .setRAMBufferSizeMB(hnswParams.ramBufferMB);
+      if (hnswParams.ordered) {
+        config.setIndexSort(new Sort(new SortField(ID_FIELD, SortField.Type.INT)));
+      }
+      return config;
     }
 
     @Override
     public BuildSummary build() throws IOException {
       System.out.println("vectors size = " + vectors.size());
       var size = this.vectors.size();
+      ArrayList<BuildPhase> build = new ArrayList<>();
       
       var buildStart = Instant.now();
+      if (hnswParams.writers > 1) {
+        build.addAll(buildSegments(size));
+      } else {
+        addDocuments(size);
+      }
+      System.out.println("build end");
+      var buildEnd = Instant.now();
+      build.add(0, new BuildPhase(Phase.build, Duration.between(buildStart, buildEnd)));
+      
+      if (hnswParams.forceMerge != 0) {
+        var mergeStart = Instant.now();
+        this.writer.forceMerge(1);
+        var mergeEnd = Instant.now();
+        build.add(new BuildPhase(Phase.merge, Duration.between(mergeStart, mergeEnd)));
+      }
+
+      var commitStart = Instant.now();
+      writer.commit();
+      var commitEnd = Instant.now();
+      build.add(new BuildPhase(Phase.commit, Duration.between(commitStart, commitEnd)));
+      
+      return new BuildSummary(build);
+    }
+
+    /**
+     * Every writer indexes a contiguous range of the vectors into its own directory, on its own thread,
+     * and flushes it as a single segment, whose HNSW graph Lucene builds while the documents are added.
+     * The segments are then copied into the index as they are, so the graphs are built in parallel
+     * into segments of the same size, instead of the per-thread segments of a shared writer.
+     *
+     * @return the duration of every writer until its segment is flushed, i.e. the graph build time of its segment
+     */
+    private List<BuildPhase> buildSegments(int size) throws IOException {
+      var writers = hnswParams.writers;
+      var path = this.directory.getDirectory();
+      var segmentPaths = IntStream.range(0, writers)
+          .mapToObj(w -> path.resolveSibling(STR."\{path.getFileName()}.segment-\{w}"))
+          .toList();
+      var flushes = new Duration[writers];
+
+      try (var pool = new ForkJoinPool(Math.min(writers, numThreads));
+           var progress = ProgressBar.create("building", size)) {
+        pool.submit(() -> IntStream.range(0, writers)
+                .parallel()
+                .forEach(w -> Exceptions.wrap(() -> {
+                  var vectors = this.vectors.randomAccess();
+                  // a build killed before the segments were added leaves their directories behind
+                  var config = writerConfig(hnswParams, mergeExecutor)
+                      .setMergePolicy(NoMergePolicy.INSTANCE)
+                      .setOpenMode(IndexWriterConfig.OpenMode.CREATE);
+                  try (var segmentDirectory = new MMapDirectory(segmentPaths.get(w));
+                       var segmentWriter = new IndexWriter(segmentDirectory, config)) {
+                    var writerStart = Instant.now();
+                    var start = (int) ((long) size * w / writers);
+                    var end = (int) ((long) size * (w + 1) / writers);
+                    for (int i = start; i < end; i++) {
+                      segmentWriter.addDocument(
+                          document(i, vectors.vectorValue(i), similarityFunction, hnswParams.attributes));
+                      progress.inc();
+                    }
+                    segmentWriter.commit();
+                    flushes[w] = Duration.between(writerStart, Instant.now());
+                    System.out.println(STR."segment \{w}: \{end - start} vectors, graph built in \{flushes[w]}");
+                  }
+                }))).join();
+      }
+
+      var segmentDirectories = new Directory[writers];
+      try {
+        for (int w = 0; w < writers; w++) {
+          segmentDirectories[w] = new MMapDirectory(segmentPaths.get(w));
+        }
+        this.writer.addIndexes(segmentDirectories);
+      } finally {
+        for (int w = 0; w < writers; w++) {
+          if (segmentDirectories[w] != null) {
+            segmentDirectories[w].close();
+          }
+          FileUtils.deleteDirectory(segmentPaths.get(w).toFile());
+        }
+      }
+      return Arrays.stream(flushes).map(flush -> new BuildPhase(Phase.flush, flush)).toList();
+    }
+
+    private void addDocuments(int size) throws IOException {
+      if (hnswParams.ordered) {
+        // the writer flushes its segments in the order the documents were added from this thread
+        var vectors = this.vectors.randomAccess();
+        try (var progress = ProgressBar.create("building", size)) {
+          for (int i = 0; i < size; i++) {
+            this.writer.addDocument(document(i, vectors.vectorValue(i), similarityFunction, hnswParams.attributes));
+            progress.inc();
+          }
+        }
+        return;
+      }
+
+      // vector values are shared, so each thread reads through its own copy
+      var threadVectors = ThreadLocal.withInitial(this.vectors::randomAccess);
       
       try (var pool = new ForkJoinPool(numThreads)) {
         try (var progress = ProgressBar.create("building", size)) {
@@ -122,13 +294,8 @@ public final class LuceneIndex {
                   .parallel()
                   .forEach(i -> {
                     Exceptions.wrap(() -> {
-                      var doc = new Document();
-                          doc.add(new StoredField(ID_FIELD, i));
-                          doc.add(
-                              new KnnVectorField(
-                                  VECTOR_FIELD,
-                                      this.vectors.vectorValue(i),
-                                  this.similarityFunction));
+                      var doc = document(
+                          i, threadVectors.get().vectorValue(i), similarityFunction, hnswParams.attributes);
                       try {
                           this.writer.addDocument(doc);
                       } catch (IOException e) {
@@ -140,26 +307,6 @@ public final class LuceneIndex {
                   })).join();
         }
       }
-
-      System.out.println("build end");
-      var buildEnd = Instant.now();
-
-      ArrayList<BuildPhase> build = new ArrayList<>();
-      build.add( new BuildPhase(Phase.build, Duration.between(buildStart, buildEnd)) );
-      
-      if (hnswParams.forceMerge != 0) {
-        var mergeStart = Instant.now();
-        this.writer.forceMerge(1);
-        var mergeEnd = Instant.now();
-        build.add(new BuildPhase(Phase.merge, Duration.between(mergeStart, mergeEnd)));
-      }
-
-      var commitStart = Instant.now();
-      writer.commit();
-      var commitEnd = Instant.now();
-      build.add(new BuildPhase(Phase.commit, Duration.between(commitStart, commitEnd)));
-      
-      return new BuildSummary(build);
     }
 
     public long size() {
@@ -175,6 +322,9 @@ public final class LuceneIndex {
     public void close() throws Exception {
       this.writer.close();
       this.directory.close();
+      if (this.mergeExecutor != null) {
+        this.mergeExecutor.shutdown();
+      }
     }
 
     private static String buildDescription(HnswBuildParameters params) {
@@ -182,12 +332,34 @@ public final class LuceneIndex {
     }
 
     private static String buildParamString(HnswBuildParameters params) {
-      return String.format(
+      var description = String.format(
               "%smaxConn:%s-beamWidth:%s-forceMerge:%s",
               LUCENE_PREFIX,
               params.maxConn,
               params.beamWidth,
               params.forceMerge);
+      if (params.writers != 1) {
+        description += "-writers:" + params.writers;
+      }
+      if (params.ramBufferMB != Integer.parseInt(DEFAULT_RAM_BUFFER_MB)) {
+        description += "-ramBufferMB:" + params.ramBufferMB;
+      }
+      if (params.mergeThreads != 1) {
+        description += "-mergeThreads:" + params.mergeThreads;
+      }
+      if (!params.quantization.equals("none")) {
+        description += "-quantization:" + params.quantization;
+      }
+      if (params.numMergeWorkers != 1) {
+        description += "-numMergeWorkers:" + params.numMergeWorkers;
+      }
+      if (params.ordered) {
+        description += "-ordered:true";
+      }
+      if (params.attributes) {
+        description += "-attributes:true";
+      }
+      return description;
     }
   }
 
@@ -196,20 +368,30 @@ public final class LuceneIndex {
     private final Directory directory;
     private final IndexReader reader;
     private final HnswBuildParameters buildParams;
-    private final HnswQueryParameters queryParams;
+    private HnswQueryParameters queryParams;
+    // documents accepted by the filter of the query parameters, null to search them all
+    private Query filter;
     private final IndexSearcher searcher;
+    private final ExecutorService searchExecutor;
+    // vector ordinal of every doc id, null for ordered indexes and the ones storing it as a stored field
+    private final int[] ordinals;
 
     private Querier(
         Directory directory,
         IndexReader reader,
         HnswBuildParameters buildParams,
         HnswQueryParameters queryParams,
-        IndexSearcher searcher) {
+        IndexSearcher searcher,
+        ExecutorService searchExecutor,
+        int[] ordinals) {
       this.directory = directory;
       this.reader = reader;
       this.buildParams = buildParams;
       this.queryParams = queryParams;
+      this.filter = filter(buildParams, queryParams);
       this.searcher = searcher;
+      this.searchExecutor = searchExecutor;
+      this.ordinals = ordinals;
     }
 
     public static Index.Querier create(Path indexesPath, Parameters parameters) throws IOException {
@@ -224,34 +406,95 @@ public final class LuceneIndex {
       var directory = new MMapDirectory(indexesPath.resolve(buildDescription));
       var reader = DirectoryReader.open(directory);
 
-      var searcher = new IndexSearcher(reader);
+      Preconditions.checkArgument(queryParams.searchThreads > 0, "searchThreads must be positive");
+      // KnnFloatVectorQuery and queryBatch search every segment in a task of the searcher's executor
+      var searchExecutor = queryParams.searchThreads > 1
+          ? Executors.newFixedThreadPool(queryParams.searchThreads)
+          : null;
+      var searcher = new IndexSearcher(reader, searchExecutor);
+      var ordinals = LuceneUtil.readDocValues(reader, ID_FIELD);
+      Preconditions.checkState(
+          ordinals != null, "index %s has no %s doc values, rebuild it", buildDescription, ID_FIELD);
+      if (buildParams.ordered) {
+        for (int doc = 0; doc < ordinals.length; doc++) {
+          Preconditions.checkState(ordinals[doc] == doc, "doc %s of the ordered index has id %s", doc, ordinals[doc]);
+        }
+        // the doc ids are the ordinals
+        ordinals = null;
+      }
       return new LuceneIndex.Querier(
-          directory, reader, buildParams, queryParams, searcher);
+          directory, reader, buildParams, queryParams, searcher, searchExecutor, ordinals);
     }
 
     @Override
-    public List<Integer> query(Object vectorObj, int k, boolean ensureIds) throws IOException {
+    public int query(Object vectorObj, int k, boolean ensureIds, int[] ids, float[] scores) throws IOException {
       float[] vector = (float[]) vectorObj;
 
-      var ids = new ArrayList<Integer>(k);
-
-      var query = new KnnVectorQuery(VECTOR_FIELD, vector, queryParams.numCandidates);
+      var query = new KnnFloatVectorQuery(VECTOR_FIELD, vector, queryParams.numCandidates, filter);
       var results = this.searcher.search(query, queryParams.numCandidates);
 
-        for (int i = 0; i < k && i < results.scoreDocs.length; i++) {
-          var result = results.scoreDocs[i];
-          var id =
-                  ensureIds
-                      ? this.searcher
-                          .doc(result.doc)
-                          .getField(ID_FIELD)
-                          .numericValue()
-                          .intValue()
-                      : result.doc;
-          ids.add(id);
-        }
+      return collect(results, k, ensureIds, ids, scores);
+    }
+
+    @Override
+    public boolean reconfigure(Map<String, String> queryParameters) {
+      var params = parseQueryPrams(queryParameters);
+      if (params.searchThreads != queryParams.searchThreads) {
+        return false;
+      }
+      this.filter = filter(buildParams, params);
+      this.queryParams = params;
+      return true;
+    }
 
-      return ids;
+    private static Query filter(HnswBuildParameters buildParams, HnswQueryParameters queryParams) {
+      if (queryParams.selectivity == 100) {
+        return null;
+      }
+      Preconditions.checkArgument(buildParams.attributes, "a filtered query requires the attributes build parameter");
+      return IntPoint.newRangeQuery(
+          ATTRIBUTE_FIELD, 0, SyntheticAttributes.upperBound(queryParams.selectivity) - 1);
+    }
+
+    @Override
+    public Filter filter() {
+      return filter == null
+          ? null
+          : new Filter("selectivity:" + queryParams.selectivity, SyntheticAttributes.filter(queryParams.selectivity));
+    }
+
+    @Override
+    public void queryBatch(List<?> vectors, int k, boolean ensureIds, int[][] ids, float[][] scores, int[] counts)
+        throws IOException {
+      if (filter != null) {
+        // the filter picks between a graph and an exact search per segment, which only the query does
+        Index.Querier.super.queryBatch(vectors, k, ensureIds, ids, scores, counts);
+        return;
+      }
+      // same per-segment search and merge that KnnVectorQuery performs, without rewriting a query per vector
+      var results = LuceneUtil.doKnnSearchBatch(
+          this.reader, VECTOR_FIELD, vectors, queryParams.numCandidates, this.searcher.getTaskExecutor());
+      for (int i = 0; i < vectors.size(); i++) {
+        counts[i] = collect(results[i], k, ensureIds, ids[i], scores[i]);
+      }
+    }
+
+    private int collect(TopDocs results, int k, boolean ensureIds, int[] ids, float[] scores) throws IOException {
+      var count = Math.min(k, results.scoreDocs.length);
+      for (int i = 0; i < count; i++) {
+        var result = results.scoreDocs[i];
+        ids[i] = ensureIds ? ordinal(result.doc) : result.doc;
+        scores[i] = result.score;
+      }
+
+      return count;
+    }
+
+    private int ordinal(int doc) throws IOException {
+      if (this.buildParams.ordered) {
+        return doc;
+      }
+      return this.ordinals[doc];
     }
 
     @Override
@@ -267,13 +510,160 @@ public final class LuceneIndex {
     public void close() throws Exception {
       this.directory.close();
       this.reader.close();
+      if (this.searchExecutor != null) {
+        this.searchExecutor.shutdown();
+      }
     }
 
     private String queryParamString() {
-      return String.format("numCandidates:%s", queryParams.numCandidates);
+      var description = String.format("numCandidates:%s", queryParams.numCandidates);
+      if (queryParams.searchThreads != 1) {
+        description += "-searchThreads:" + queryParams.searchThreads;
+      }
+      if (queryParams.selectivity != 100) {
+        description += "-selectivity:" + queryParams.selectivity;
+      }
+      return description;
     }
   }
   
+  /**
+   * Index written by an {@link IndexWriter} while it is searched through near-real-time readers,
+   * which see the writes once {@link #refresh} reopens them, as a service refreshing its searcher periodically does.
+   * Its documents also index their id as a point, to be deleted by id.
+   */
+  public static final class Live implements Index.Live {
+
+    private final MMapDirectory directory;
+    private final IndexWriter writer;
+    private final SearcherManager searcherManager;
+    private final ThreadLocal<CustomVectorProvider> threadVectors;
+    private final VectorSimilarityFunction similarityFunction;
+    private final HnswBuildParameters buildParams;
+    private HnswQueryParameters queryParams;
+    private final ExecutorService mergeExecutor;
+
+    private Live(
+        MMapDirectory directory,
+        IndexWriter writer,
+        SearcherManager searcherManager,
+        CustomVectorProvider vectors,
+        VectorSimilarityFunction similarityFunction,
+        HnswBuildParameters buildParams,
+        HnswQueryParameters queryParams,
+        ExecutorService mergeExecutor) {
+      this.directory = directory;
+      this.writer = writer;
+      this.searcherManager = searcherManager;
+      // vector values are shared, so each thread reads through its own copy
+      this.threadVectors = ThreadLocal.withInitial(vectors::randomAccess);
+      this.similarityFunction = similarityFunction;
+      this.buildParams = buildParams;
+      this.queryParams = queryParams;
+      this.mergeExecutor = mergeExecutor;
+    }
+
+    /**
+     * Creates an empty index, next to the one the builder writes with the same parameters,
+     * replacing the one of a previous run.
+     */
+    public static Live create(DataSetLucene dataSet, Path indexesPath, Parameters parameters) throws IOException {
+      var buildParams = parseBuildPrams(parameters.buildParameters());
+      var queryParams = parseQueryPrams(parameters.queryParameters());
+      Preconditions.checkArgument(
+          buildParams.writers == 1 && !buildParams.ordered, "a live index has a single writer, adding any document");
+      Preconditions.checkArgument(queryParams.searchThreads == 1, "a live index searches from the query thread");
+      Preconditions.checkArgument(queryParams.selectivity == 100, "a live index is not filtered");
+      Preconditions.checkArgument(buildParams.numMergeWorkers > 0, "numMergeWorkers must be positive");
+
+      var path = indexesPath.resolve(LuceneIndex.Builder.buildDescription(buildParams) + "-live");
+      FileUtils.deleteDirectory(path.toFile());
+      var directory = new MMapDirectory(path);
+      var mergeExecutor = buildParams.numMergeWorkers > 1
+          ? Executors.newFixedThreadPool(buildParams.numMergeWorkers)
+          : null;
+      var writer = new IndexWriter(directory, LuceneIndex.Builder.writerConfig(buildParams, mergeExecutor));
+      var searcherManager = new SearcherManager(writer, null);
+      return new LuceneIndex.Live(
+          directory, writer, searcherManager, dataSet.baseVectorsArray(), dataSet.similarityFunction(),
+          buildParams, queryParams, mergeExecutor);
+    }
+
+    @Override
+    public void insert(int ordinal) throws IOException {
+      var doc = document(
+          ordinal, threadVectors.get().vectorValue(ordinal), similarityFunction, buildParams.attributes);
+      doc.add(new IntPoint(ID_FIELD, ordinal));
+      writer.addDocument(doc);
+    }
+
+    @Override
+    public void delete(int ordinal) throws IOException {
+      writer.deleteDocuments(IntPoint.newExactQuery(ID_FIELD, ordinal));
+    }
+
+    @Override
+    public void refresh() throws IOException {
+      searcherManager.maybeRefreshBlocking();
+    }
+
+    @Override
+    public int query(Object vectorObj, int k, boolean ensureIds, int[] ids, float[] scores) throws IOException {
+      var searcher = searcherManager.acquire();
+      try {
+        var query = new KnnFloatVectorQuery(VECTOR_FIELD, (float[]) vectorObj, queryParams.numCandidates);
+        var results = searcher.search(query, queryParams.numCandidates);
+        var count = Math.min(k, results.scoreDocs.length);
+        for (int i = 0; i < count; i++) {
+          var result = results.scoreDocs[i];
+          // the doc ids change with every reopen, so the ids are read from the segment of each result
+          ids[i] = LuceneUtil.readDocValue(searcher.getIndexReader(), ID_FIELD, result.doc);
+          scores[i] = result.score;
+        }
+        return count;
+      } finally {
+        searcherManager.release(searcher);
+      }
+    }
+
+    @Override
+    public boolean reconfigure(Map<String, String> queryParameters) {
+      var params = parseQueryPrams(queryParameters);
+      if (params.searchThreads != queryParams.searchThreads) {
+        return false;
+      }
+      this.queryParams = params;
+      return true;
+    }
+
+    @Override
+    public String description() {
+      return LuceneIndex.Builder.buildParamString(buildParams) + "_numCandidates:" + queryParams.numCandidates;
+    }
+
+    @Override
+    public void close() throws Exception {
+      this.searcherManager.close();
+      this.writer.close();
+      this.directory.close();
+      if (this.mergeExecutor != null) {
+        this.mergeExecutor.shutdown();
+      }
+    }
+  }
+
+  private static Document document(
+      int id, float[] vector, VectorSimilarityFunction similarityFunction, boolean attributes) {
+    var doc = new Document();
+    // doc values rather than a stored field, read once by the querier instead of decompressed per result
+    doc.add(new NumericDocValuesField(ID_FIELD, id));
+    doc.add(new KnnFloatVectorField(VECTOR_FIELD, vector, similarityFunction));
+    if (attributes) {
+      doc.add(new IntPoint(ATTRIBUTE_FIELD, SyntheticAttributes.of(id)));
+    }
+    return doc;
+  }
+
   private static HnswBuildParameters parseBuildPrams(Map<String, String> parameters) {
     return Records.fromMap(parameters, HnswBuildParameters.class, "build parameters");
   }
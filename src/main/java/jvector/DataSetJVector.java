@@ -3,17 +3,12 @@ package jvector;
 import io.github.jbellis.jvector.graph.ListRandomAccessVectorValues;
 import io.github.jbellis.jvector.graph.RandomAccessVectorValues;
 import io.github.jbellis.jvector.vector.VectorSimilarityFunction;
-import io.github.jbellis.jvector.vector.VectorUtil;
 import io.github.jbellis.jvector.vector.types.VectorFloat;
 import util.DataSetVector;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.HashSet;
+import java.util.AbstractList;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
-import java.util.TreeSet;
 
 
 /**
@@ -97,84 +92,33 @@ public class DataSetJVector implements DataSetVector<
     }
 
     /**
-     * Return a dataset containing the given vectors, scrubbed free from zero vectors and normalized to unit length.
-     * Note: This only scrubs and normalizes for dot product similarity.
+     * Dataset whose base vectors are served by the given {@link RandomAccessVectorValues} (e.g. off-heap or memory-mapped)
+     * instead of being held on heap. {@link #baseVectorsArray()} is a read-only view over it, returning copies.
      */
-    public static DataSetJVector getScrubbedDataSet(String pathStr,
-                                                    SimilarityFunction vsf,
-                                                    List<VectorFloat<?>> baseVectors,
-                                                    List<VectorFloat<?>> queryVectors,
-                                                    List<Set<Integer>> groundTruth)
+    public DataSetJVector(String name,
+                          SimilarityFunction similarityFunction,
+                          RandomAccessVectorValues baseRavv,
+                          List<VectorFloat<?>> queryVectors,
+                          List<? extends Set<Integer>> groundTruth)
     {
-        // remove zero vectors and duplicates, noting that this will change the indexes of the ground truth answers
-        List<VectorFloat<?>> scrubbedBaseVectors;
-        List<VectorFloat<?>> scrubbedQueryVectors;
-        List<HashSet<Integer>> gtSet;
-        scrubbedBaseVectors = new ArrayList<>(baseVectors.size());
-        scrubbedQueryVectors = new ArrayList<>(queryVectors.size());
-        gtSet = new ArrayList<>(groundTruth.size());
-        var uniqueVectors = new TreeSet<VectorFloat<?>>((a, b) -> {
-            assert a.length() == b.length();
-            for (int i = 0; i < a.length(); i++) {
-                if (a.get(i) < b.get(i)) {
-                    return -1;
-                }
-                if (a.get(i) > b.get(i)) {
-                    return 1;
-                }
-            }
-            return 0;
-        });
-        Map<Integer, Integer> rawToScrubbed = new HashMap<>();
-        {
-            int j = 0;
-            for (int i = 0; i < baseVectors.size(); i++) {
-                VectorFloat<?> v = baseVectors.get(i);
-                var valid = (vsf == SimilarityFunction.EUCLIDEAN) || Math.abs(normOf(v)) > 1e-5;
-                if (valid && uniqueVectors.add(v)) {
-                    scrubbedBaseVectors.add(v);
-                    rawToScrubbed.put(i, j++);
-                }
-            }
-        }
-        // also remove zero query vectors
-        for (int i = 0; i < queryVectors.size(); i++) {
-            VectorFloat<?> v = queryVectors.get(i);
-            var valid = (vsf == SimilarityFunction.EUCLIDEAN) || Math.abs(normOf(v)) > 1e-5;
-            if (valid) {
-                scrubbedQueryVectors.add(v);
-                var gt = new HashSet<Integer>();
-                for (int j : groundTruth.get(i)) {
-                    gt.add(rawToScrubbed.get(j));
+        this(name, similarityFunction, asList(baseRavv), queryVectors, groundTruth);
+        this.baseRavv = baseRavv;
+    }
+
+    private static List<VectorFloat<?>> asList(RandomAccessVectorValues ravv) {
+        return new AbstractList<>() {
+            @Override
+            public VectorFloat<?> get(int index) {
+                synchronized (ravv) {
+                    return ravv.getVector(index).copy();
                 }
-                gtSet.add(gt);
             }
-        }
 
-        // now that the zero vectors are removed, we can normalize if it looks like they aren't already
-        if (vsf == SimilarityFunction.DOT_PRODUCT) {
-            if (Math.abs(normOf(baseVectors.get(0)) - 1.0) > 1e-5) {
-                normalizeAll(scrubbedBaseVectors);
-                normalizeAll(scrubbedQueryVectors);
+            @Override
+            public int size() {
+                return ravv.size();
             }
-        }
-
-        assert scrubbedQueryVectors.size() == gtSet.size();
-        return new DataSetJVector(pathStr, vsf, scrubbedBaseVectors, scrubbedQueryVectors, gtSet);
-    }
-
-    private static void normalizeAll(Iterable<VectorFloat<?>> vectors) {
-        for (VectorFloat<?> v : vectors) {
-            VectorUtil.l2normalize(v);
-        }
-    }
-
-    private static float normOf(VectorFloat<?> baseVector) {
-        float norm = 0;
-        for (int i = 0; i < baseVector.length(); i++) {
-            norm += baseVector.get(i) * baseVector.get(i);
-        }
-        return (float) Math.sqrt(norm);
+        };
     }
 
     public int getDimension() {
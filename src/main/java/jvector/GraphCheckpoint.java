@@ -0,0 +1,69 @@
+package jvector;
+
+import com.google.common.base.Preconditions;
+import io.github.jbellis.jvector.disk.SimpleMappedReader;
+import io.github.jbellis.jvector.graph.GraphIndex;
+import io.github.jbellis.jvector.graph.GraphIndexBuilder;
+import io.github.jbellis.jvector.graph.OnHeapGraphIndex;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Partially built graph saved to disk, in the format of {@link OnHeapGraphIndex#save} that
+ * {@link GraphIndexBuilder#load} reads back: the number of nodes, the entry node and the maximum degree,
+ * then every node with its neighbors. Only the neighbor ids are stored, the builder scoring them again on load.
+ * <p>
+ * Any graph can be saved this way, in particular an on-disk one, so that new nodes can be added to it.
+ */
+public final class GraphCheckpoint {
+
+    private GraphCheckpoint() {}
+
+    /**
+     * Saves {@code graph}, whose ids must be {@code 0..size-1} and which must not be modified meanwhile,
+     * replacing the file at {@code path} only once it is complete.
+     */
+    public static void write(GraphIndex graph, Path path) throws IOException {
+        var size = graph.size();
+        Preconditions.checkArgument(graph.getIdUpperBound() == size, "graph has holes in its node ids");
+
+        var tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)));
+             var view = graph.getView()) {
+            out.writeInt(size);
+            out.writeInt(view.entryNode());
+            out.writeInt(graph.maxDegree());
+            for (int node = 0; node < size; node++) {
+                // neighbors best first, as the builder expects them
+                var it = view.getNeighborsIterator(node);
+                out.writeInt(node);
+                out.writeInt(it.size());
+                while (it.hasNext()) {
+                    out.writeInt(it.nextInt());
+                }
+            }
+        }
+        Files.move(tmp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Loads the graph saved at {@code path} into the empty graph of {@code builder}.
+     *
+     * @return the number of nodes loaded, whose ids are {@code 0..count-1}
+     */
+    public static int load(GraphIndexBuilder builder, Path path) throws IOException {
+        try (var supplier = new SimpleMappedReader.Supplier(path);
+             var reader = supplier.get()) {
+            builder.load(reader);
+        }
+        var graph = builder.getGraph();
+        Preconditions.checkState(
+                graph.getIdUpperBound() == graph.size(), "checkpoint %s has holes in its node ids", path);
+        return graph.size();
+    }
+}
@@ -0,0 +1,177 @@
+package jvector;
+
+import com.google.common.base.Preconditions;
+import io.github.jbellis.jvector.graph.GraphIndex;
+import io.github.jbellis.jvector.graph.RandomAccessVectorValues;
+import io.github.jbellis.jvector.vector.types.VectorFloat;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Renumbering of the nodes of a graph before it is written to disk, where every node is stored with its vector
+ * and neighbors in ordinal order, so that the nodes reached one after the other by a search are stored close
+ * to each other and share pages, instead of being scattered in the dataset order.
+ * <ul>
+ *     <li>{@code bfs}: breadth-first order from the entry node, neighbors in the order of the graph;</li>
+ *     <li>{@code rcm}: reverse Cuthill-McKee, a breadth-first order visiting the neighbors of lowest degree
+ *     first and starting every new component from its node of lowest degree, then reversed.</li>
+ * </ul>
+ */
+public enum GraphReordering {
+    none,
+    bfs,
+    rcm;
+
+    /**
+     * @return the new ordinal of every node of {@code graph}, whose ids must be {@code 0..size-1},
+     *         or null for {@code none}
+     */
+    public int[] oldToNew(GraphIndex graph) throws IOException {
+        if (this == none) {
+            return null;
+        }
+        var size = graph.size();
+        Preconditions.checkArgument(graph.getIdUpperBound() == size, "graph has holes in its node ids");
+
+        // new to old, and the queue of the breadth-first traversal: the nodes between head and count are queued
+        var order = new int[size];
+        var visited = new boolean[size];
+        var neighbors = new int[graph.maxDegree()];
+        int count = 0;
+        try (var view = graph.getView()) {
+            var degrees = this == rcm ? degrees(view, size) : null;
+            int start = view.entryNode();
+            int nextStart = 0;
+            while (count < size) {
+                if (start < 0 || visited[start]) {
+                    start = this == rcm ? lowestDegree(degrees, visited) : nextUnvisited(visited, nextStart);
+                    nextStart = start;
+                }
+                visited[start] = true;
+                order[count++] = start;
+                for (int head = count - 1; head < count; head++) {
+                    int found = 0;
+                    for (var it = view.getNeighborsIterator(order[head]); it.hasNext(); ) {
+                        int neighbor = it.nextInt();
+                        if (!visited[neighbor]) {
+                            visited[neighbor] = true;
+                            neighbors[found++] = neighbor;
+                        }
+                    }
+                    if (degrees != null) {
+                        sortByDegree(neighbors, found, degrees);
+                    }
+                    System.arraycopy(neighbors, 0, order, count, found);
+                    count += found;
+                }
+            }
+        }
+
+        var oldToNew = new int[size];
+        for (int i = 0; i < size; i++) {
+            oldToNew[order[i]] = this == rcm ? size - 1 - i : i;
+        }
+        return oldToNew;
+    }
+
+    private static int[] degrees(GraphIndex.View view, int size) {
+        var degrees = new int[size];
+        for (int node = 0; node < size; node++) {
+            degrees[node] = view.getNeighborsIterator(node).size();
+        }
+        return degrees;
+    }
+
+    private static int nextUnvisited(boolean[] visited, int from) {
+        int node = from;
+        while (visited[node]) {
+            node++;
+        }
+        return node;
+    }
+
+    private static int lowestDegree(int[] degrees, boolean[] visited) {
+        int lowest = -1;
+        for (int node = 0; node < degrees.length; node++) {
+            if (!visited[node] && (lowest < 0 || degrees[node] < degrees[lowest])) {
+                lowest = node;
+            }
+        }
+        return lowest;
+    }
+
+    /**
+     * Insertion sort, the arrays being at most as long as the maximum degree.
+     */
+    private static void sortByDegree(int[] nodes, int count, int[] degrees) {
+        for (int i = 1; i < count; i++) {
+            int node = nodes[i];
+            int j = i - 1;
+            while (j >= 0 && degrees[nodes[j]] > degrees[node]) {
+                nodes[j + 1] = nodes[j];
+                j--;
+            }
+            nodes[j + 1] = node;
+        }
+    }
+
+    public static void write(int[] oldToNew, Path path) throws IOException {
+        try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+            out.writeInt(oldToNew.length);
+            for (int ordinal : oldToNew) {
+                out.writeInt(ordinal);
+            }
+        }
+    }
+
+    /**
+     * @return the old ordinal of every node, the inverse of the map written by {@link #write}
+     */
+    public static int[] readNewToOld(Path path) throws IOException {
+        try (var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            var newToOld = new int[in.readInt()];
+            for (int old = 0; old < newToOld.length; old++) {
+                newToOld[in.readInt()] = old;
+            }
+            return newToOld;
+        }
+    }
+
+    /**
+     * @return a view of {@code vectors}, indexed by old ordinals, indexed by the new ones
+     */
+    public static RandomAccessVectorValues renumbered(RandomAccessVectorValues vectors, int[] newToOld) {
+        return new RandomAccessVectorValues() {
+            @Override
+            public int size() {
+                return vectors.size();
+            }
+
+            @Override
+            public int dimension() {
+                return vectors.dimension();
+            }
+
+            @Override
+            public VectorFloat<?> getVector(int node) {
+                return vectors.getVector(newToOld[node]);
+            }
+
+            @Override
+            public boolean isValueShared() {
+                return vectors.isValueShared();
+            }
+
+            @Override
+            public RandomAccessVectorValues copy() {
+                return renumbered(vectors.copy(), newToOld);
+            }
+        };
+    }
+}
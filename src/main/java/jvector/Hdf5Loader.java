@@ -9,13 +9,25 @@ import io.jhdf.object.datatype.FloatingPoint;
 import util.DataSetVector;
 import util.DataSetLucene;
 import util.DataSetHdf5;
+import util.VectorStore;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.IntStream;
+import java.util.zip.CRC32C;
 
 /**
  * Taken from https://github.com/jbellis/jvector/blob/main/jvector-examples/src/main/java/io/github/jbellis/jvector/example/util/Hdf5Loader.java
@@ -26,50 +38,65 @@ import java.util.stream.IntStream;
  */
 public class Hdf5Loader {
     public static final String HDF5_DIR = "hdf5/";
+    public static final String FVECS_DIR = "fvecs/";
+    private static final String TRAIN_FVECS = "train.fvecs";
+    private static final String TEST_FVECS = "test.fvecs";
+    private static final String NEIGHBORS_IVECS = "neighbors.ivecs";
+    private static final int BATCH_SIZE = 100000;
+    private static final int WRITE_BUFFER_BYTES = 16 * 1024 * 1024;
+    /**
+     * Version of the scrubbed datasets cache, to bump when the scrubbing changes.
+     */
+    private static final int CACHE_VERSION = 1;
     private static final VectorTypeSupport vectorTypeSupport = VectorizationProvider.getInstance().getVectorTypeSupport();
+    private static final Map<Path, DataSetHdf5> cachedResults = new HashMap<>();
+    private static final Map<String, String> checksums = new HashMap<>();
 
 
     public static DataSetLucene loadLucene(DataSetHdf5 result) {
         return new DataSetLucene(
                 result.path().getFileName().toString(),
                 result.similarityFunction(),
-                result.baseVectorsArray(),
+                result.baseVectors(),
                 result.queryVectorsArray(),
                 result.groundTruth()
         );
     }
     
-    public static DataSetJVector loadJvector(DataSetHdf5 result) {
-        // infer the similarity
-        
-
-        VectorFloat<?>[] baseVectors;
-        VectorFloat<?>[] queryVectors;
-        var gtSets = new ArrayList<Set<Integer>>();
-            
-            baseVectors = IntStream.range(0, result.baseVectorsArray().length).parallel().mapToObj(i -> vectorTypeSupport.createFloatVector(result.baseVectorsArray()[i])).toArray(VectorFloat<?>[]::new);
-            queryVectors = IntStream.range(0, result.queryVectorsArray().length).parallel().mapToObj(i -> vectorTypeSupport.createFloatVector(result.queryVectorsArray()[i])).toArray(VectorFloat<?>[]::new);
-            
-            gtSets = new ArrayList<>(result.groundTruth().length);
-            for (int[] i : result.groundTruth()) {
-                var gtSet = new HashSet<Integer>(i.length);
-                for (int j : i) {
-                    gtSet.add(j);
-                }
-                gtSets.add(gtSet);
+    private static List<Set<Integer>> toGroundTruthSets(int[][] groundTruth) {
+        var gtSets = new ArrayList<Set<Integer>>(groundTruth.length);
+        for (int[] i : groundTruth) {
+            var gtSet = new HashSet<Integer>(i.length);
+            for (int j : i) {
+                gtSet.add(j);
             }
+            gtSets.add(gtSet);
+        }
+        return gtSets;
+    }
 
-        return DataSetJVector.getScrubbedDataSet(
-                result.path().getFileName().toString(), result.similarityFunction(), 
-                Arrays.asList(baseVectors), Arrays.asList(queryVectors), 
-                gtSets);
+    public static DataSetJVector loadJvector(DataSetHdf5 result) {
+        List<VectorFloat<?>> queryVectors = Arrays.stream(result.queryVectorsArray())
+                .map(vectorTypeSupport::createFloatVector)
+                .toList();
+        return new DataSetJVector(
+                result.path().getFileName().toString(), result.similarityFunction(),
+                new VectorStoreValues(result.baseVectors()), queryVectors,
+                toGroundTruthSets(result.groundTruth()));
     }
 
-    public static DataSetHdf5 getResult(String filename) {
+    /**
+     * Loads the train vectors off heap with {@link Hdf5Pipeline}.
+     *
+     * @param scrub if true, duplicate vectors are removed, as well as zero vectors (and the queries that are zero)
+     *              unless the similarity is euclidean, and the ground truth is translated to the remaining ordinals
+     */
+    public static DataSetHdf5 getResult(String filename, boolean scrub) throws InterruptedException {
         DataSetVector.SimilarityFunction similarityFunction = getSimilarityFunction(filename);
+        var dropZeros = scrub && similarityFunction != DataSetVector.SimilarityFunction.EUCLIDEAN;
 
         // read the data
-        float[][] baseVectorsArray;
+        Hdf5Pipeline.Result train;
         float[][] queryVectorsArray;
         int[][] groundTruth;
 
@@ -79,41 +106,186 @@ public class Hdf5Loader {
                     .getDatasetByPath("neighbors")
                     .getData()
             ;
+            queryVectorsArray = readQueryVectors(hdf);
+            train = Hdf5Pipeline.load(hdf.getDatasetByPath("train"), "Loading " + filename, scrub, dropZeros);
+        }
 
-            var dataset = hdf.getDatasetByPath("train");
-            int[] dimensions = dataset.getDimensions();
-            int batchSize = 100000; // Adjust batch size as needed
-            baseVectorsArray = new float[dimensions[0]][dimensions[1]];
-            for (int i = 0; i < dimensions[0]; i += batchSize) {
-                long[] start = {i, 0}; // Start position for batch read
-                int[] blockSize = {Math.min(batchSize, dimensions[0] - i), dimensions[1]}; // Block size for batch
-
-                // Read a batch slice of the dataset
-                float[][] batchData = (float[][]) dataset.getData(start, blockSize);
-                System.arraycopy(batchData, 0, baseVectorsArray, i, batchData.length);
-                // Process batchData as needed
-                System.out.println("Read batch starting at row " + i);
+        if (dropZeros || train.rawToScrubbed() != null) {
+            var queries = new ArrayList<float[]>(queryVectorsArray.length);
+            var neighbors = new ArrayList<int[]>(groundTruth.length);
+            for (int i = 0; i < queryVectorsArray.length; i++) {
+                if (!dropZeros || !isZero(queryVectorsArray[i])) {
+                    queries.add(queryVectorsArray[i]);
+                    neighbors.add(scrubbed(groundTruth[i], train.rawToScrubbed()));
+                }
             }
+            queryVectorsArray = queries.toArray(float[][]::new);
+            groundTruth = neighbors.toArray(int[][]::new);
+        }
+        return new DataSetHdf5(similarityFunction, train.vectors(), queryVectorsArray, groundTruth, path);
+    }
 
+    private static boolean isZero(float[] vector) {
+        float norm = 0;
+        for (float v : vector) {
+            norm += v * v;
+        }
+        return Math.sqrt(norm) <= 1e-5;
+    }
 
+    /**
+     * Neighbors translated to scrubbed ordinals, without the dropped vectors
+     * and with a single entry for the neighbors that were duplicates of each other.
+     */
+    private static int[] scrubbed(int[] neighbors, int[] rawToScrubbed) {
+        if (rawToScrubbed == null) {
+            return neighbors;
+        }
+        return Arrays.stream(neighbors)
+                .map(j -> rawToScrubbed[j])
+                .filter(j -> j >= 0)
+                .distinct()
+                .toArray();
+    }
 
+    /**
+     * Same as {@link #getResult(String, boolean)}, but the result is written once under {@link #FVECS_DIR},
+     * in a folder named after the checksum of the hdf5 file and the scrub option, and then memory-mapped from there.
+     * Results are also kept for the whole process, so that the build and all the query specs
+     * of a run share the same dataset.
+     */
+    public static synchronized DataSetHdf5 getCachedResult(String filename, boolean scrub)
+            throws IOException, InterruptedException {
+        Path path = Path.of(HDF5_DIR).resolve(filename);
+        Path cacheDir = Path.of(FVECS_DIR)
+                .resolve(filename.replace(".hdf5", ""))
+                .resolve(String.format("%s-%s-v%d", checksum(path), scrub ? "scrubbed" : "raw", CACHE_VERSION));
+        var cached = cachedResults.get(cacheDir);
+        if (cached != null) {
+            return cached;
+        }
 
-            Dataset queryDataset = hdf.getDatasetByPath("test");
-            if (((FloatingPoint) queryDataset.getDataType()).getBitPrecision() == 64) {
-                // lastfm dataset contains f64 queries but f32 everything else
-                var doubles = ((double[][]) queryDataset.getData());
-                queryVectorsArray = IntStream.range(0, doubles.length).parallel().mapToObj(i -> {
-                    var a = new float[doubles[i].length];
-                    for (int j = 0; j < doubles[i].length; j++) {
-                        a[j] = (float) doubles[i][j];
+        Path train = cacheDir.resolve(TRAIN_FVECS);
+        Path test = cacheDir.resolve(TEST_FVECS);
+        Path neighbors = cacheDir.resolve(NEIGHBORS_IVECS);
+        if (!Files.exists(train) || !Files.exists(test) || !Files.exists(neighbors)) {
+            var result = getResult(filename, scrub);
+            Files.createDirectories(cacheDir);
+            writeIvecs(neighbors, result.groundTruth());
+            writeFvecs(test, List.<float[][]>of(result.queryVectorsArray()));
+            var baseVectors = result.baseVectors();
+            Iterable<float[][]> batches = () -> IntStream.iterate(0, i -> i < baseVectors.size(), i -> i + BATCH_SIZE)
+                    .mapToObj(i -> IntStream.range(i, Math.min(i + BATCH_SIZE, baseVectors.size()))
+                            .mapToObj(baseVectors::get)
+                            .toArray(float[][]::new))
+                    .iterator();
+            writeFvecs(train, batches);
+        } else {
+            System.out.println("Using cached dataset " + cacheDir);
+        }
+
+        cached = new DataSetHdf5(getSimilarityFunction(filename), VectorStore.map(train),
+                VectorStore.map(test).toArray(), readIvecs(neighbors), path);
+        cachedResults.put(cacheDir, cached);
+        return cached;
+    }
+
+    /**
+     * CRC32C of the file content, computed once per process for a given size and modification time.
+     */
+    private static String checksum(Path path) throws IOException {
+        var key = String.format("%s:%d:%d", path.toAbsolutePath(), Files.size(path),
+                Files.getLastModifiedTime(path).toMillis());
+        var checksum = checksums.get(key);
+        if (checksum == null) {
+            var crc = new CRC32C();
+            try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                var buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_BYTES);
+                while (channel.read(buffer) != -1) {
+                    buffer.flip();
+                    crc.update(buffer);
+                    buffer.clear();
+                }
+            }
+            checksum = String.format("%08x", crc.getValue());
+            checksums.put(key, checksum);
+        }
+        return checksum;
+    }
+
+    private static float[][] readQueryVectors(HdfFile hdf) {
+        Dataset queryDataset = hdf.getDatasetByPath("test");
+        if (((FloatingPoint) queryDataset.getDataType()).getBitPrecision() == 64) {
+            // lastfm dataset contains f64 queries but f32 everything else
+            var doubles = ((double[][]) queryDataset.getData());
+            return IntStream.range(0, doubles.length).parallel().mapToObj(i -> {
+                var a = new float[doubles[i].length];
+                for (int j = 0; j < doubles[i].length; j++) {
+                    a[j] = (float) doubles[i][j];
+                }
+                return a;
+            }).toArray(float[][]::new);
+        }
+        return (float[][]) queryDataset.getData();
+    }
+
+    private static void writeFvecs(Path path, Iterable<float[][]> batches) throws IOException {
+        // write to a temporary file first, so that an interrupted conversion is never picked up as complete
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (var channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            var buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            for (float[][] batch : batches) {
+                for (float[] vector : batch) {
+                    if (buffer.remaining() < Integer.BYTES + vector.length * Float.BYTES) {
+                        flush(channel, buffer);
                     }
-                    return a;
-                }).toArray(float[][]::new);
-            } else {
-                queryVectorsArray = (float[][]) queryDataset.getData();
+                    buffer.putInt(vector.length);
+                    buffer.asFloatBuffer().put(vector);
+                    buffer.position(buffer.position() + vector.length * Float.BYTES);
+                }
             }
+            flush(channel, buffer);
+        }
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void writeIvecs(Path path, int[][] rows) throws IOException {
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (var channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            var buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            for (int[] row : rows) {
+                if (buffer.remaining() < Integer.BYTES + row.length * Integer.BYTES) {
+                    flush(channel, buffer);
+                }
+                buffer.putInt(row.length);
+                buffer.asIntBuffer().put(row);
+                buffer.position(buffer.position() + row.length * Integer.BYTES);
+            }
+            flush(channel, buffer);
+        }
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static int[][] readIvecs(Path path) throws IOException {
+        try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            var buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).order(ByteOrder.LITTLE_ENDIAN);
+            var rows = new ArrayList<int[]>();
+            while (buffer.hasRemaining()) {
+                var row = new int[buffer.getInt()];
+                buffer.asIntBuffer().get(row);
+                buffer.position(buffer.position() + row.length * Integer.BYTES);
+                rows.add(row);
+            }
+            return rows.toArray(int[][]::new);
+        }
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
         }
-        return new DataSetHdf5(similarityFunction, baseVectorsArray, queryVectorsArray, groundTruth, path);
+        buffer.clear();
     }
 
     private static DataSetVector.SimilarityFunction getSimilarityFunction(String filename) {
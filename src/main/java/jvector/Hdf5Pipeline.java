@@ -0,0 +1,216 @@
+package jvector;
+
+import io.jhdf.api.Dataset;
+import util.ProgressBar;
+import util.VectorStore;
+
+import java.lang.foreign.MemorySegment;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Loads the {@code train} vectors of an hdf5 file into a {@link VectorStore} with stages running concurrently,
+ * connected by a bounded queue so that at most a few chunks are held on heap at any time:
+ * <ol>
+ *     <li>a reader thread, the only one touching the file, reads chunks of {@link #CHUNK_ROWS} rows;</li>
+ *     <li>a pool of workers copies every chunk into the store at its raw ordinals,
+ *     flags the zero vectors and hashes the bytes of the others;</li>
+ *     <li>the calling thread takes the chunks in file order, and gives every valid vector the next scrubbed ordinal,
+ *     or the one of its first occurrence if a vector with the same bytes was already seen.</li>
+ * </ol>
+ * Duplicates are found with an open-addressing table of the hashes, confirmed by comparing the stored bytes,
+ * instead of sorting all the vectors. The store is compacted afterward if any vector was dropped.
+ */
+final class Hdf5Pipeline {
+    static final int CHUNK_ROWS = 16 * 1024;
+    private static final float MIN_NORM = 1e-5f;
+    private static final int DROPPED = -1;
+
+    /**
+     * @param rawToScrubbed ordinal in {@code vectors} of every vector of the file, {@link #DROPPED} for zero vectors,
+     *                      or null when nothing was scrubbed and ordinals are unchanged
+     */
+    record Result(VectorStore vectors, int[] rawToScrubbed) {}
+
+    private record Chunk(int start, int size, boolean[] zero, long[] hashes) {}
+
+    private Hdf5Pipeline() {}
+
+    /**
+     * @param dedup      drop the vectors equal to a previous one
+     * @param dropZeros  drop the vectors whose norm is (almost) zero, which the cosine similarity cannot score
+     */
+    static Result load(Dataset train, String description, boolean dedup, boolean dropZeros)
+            throws InterruptedException {
+        int[] dimensions = train.getDimensions();
+        int rows = dimensions[0];
+        int dimension = dimensions[1];
+        var store = VectorStore.allocate(rows, dimension);
+        var scrub = dedup || dropZeros;
+
+        int workers = Runtime.getRuntime().availableProcessors();
+        var chunks = new ArrayBlockingQueue<Future<Chunk>>(2 * workers);
+        var pool = Executors.newFixedThreadPool(workers);
+        var reader = Executors.newSingleThreadExecutor();
+        try (var progress = ProgressBar.create(description, rows)) {
+            reader.submit(() -> {
+                read(train, rows, dimension, store, dedup, dropZeros, pool, chunks);
+                return null;
+            });
+
+            var rawToScrubbed = scrub ? new int[rows] : null;
+            var uniques = dedup ? new UniqueVectors(store, rows) : null;
+            int size = 0;
+            for (int start = 0; start < rows; start += CHUNK_ROWS) {
+                Chunk chunk;
+                try {
+                    chunk = chunks.take().get();
+                } catch (ExecutionException e) {
+                    throw new RuntimeException("Failed to load " + description, e.getCause());
+                }
+                for (int i = 0; scrub && i < chunk.size; i++) {
+                    int raw = chunk.start + i;
+                    if (chunk.zero[i]) {
+                        rawToScrubbed[raw] = DROPPED;
+                        continue;
+                    }
+                    int first = dedup ? uniques.putIfAbsent(chunk.hashes[i], raw) : raw;
+                    rawToScrubbed[raw] = first == raw ? size++ : rawToScrubbed[first];
+                }
+                progress.inc(chunk.size);
+            }
+
+            if (!scrub || size == rows) {
+                return new Result(store, null);
+            }
+            compact(store, rawToScrubbed);
+            return new Result(store.head(size), rawToScrubbed);
+        } finally {
+            reader.shutdownNow();
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Reads the chunks in order and queues their processing, blocking while the queue is full.
+     * A failed read is queued as well, so that the consumer does not wait forever.
+     */
+    private static void read(Dataset train, int rows, int dimension, VectorStore store, boolean hash,
+                             boolean dropZeros, ExecutorService pool, BlockingQueue<Future<Chunk>> chunks)
+            throws InterruptedException {
+        for (int start = 0; start < rows; start += CHUNK_ROWS) {
+            int chunkStart = start;
+            Future<Chunk> chunk;
+            try {
+                long[] offset = {start, 0};
+                int[] shape = {Math.min(CHUNK_ROWS, rows - start), dimension};
+                var vectors = (float[][]) train.getData(offset, shape);
+                chunk = pool.submit(() -> process(chunkStart, vectors, store, hash, dropZeros));
+            } catch (RuntimeException e) {
+                chunks.put(CompletableFuture.failedFuture(e));
+                return;
+            }
+            chunks.put(chunk);
+        }
+    }
+
+    private static Chunk process(int start, float[][] vectors, VectorStore store, boolean hash, boolean dropZeros) {
+        var zero = new boolean[vectors.length];
+        var hashes = hash ? new long[vectors.length] : null;
+        for (int i = 0; i < vectors.length; i++) {
+            var vector = vectors[i];
+            store.set(start + i, vector);
+            if (dropZeros) {
+                zero[i] = normOf(vector) <= MIN_NORM;
+            }
+            if (hash) {
+                hashes[i] = hashOf(vector);
+            }
+        }
+        return new Chunk(start, vectors.length, zero, hashes);
+    }
+
+    /**
+     * Moves every kept vector to its scrubbed ordinal, copying runs of consecutive kept vectors at once.
+     * Scrubbed ordinals never exceed raw ones, so moving in ascending order never overwrites a vector yet to move.
+     */
+    private static void compact(VectorStore store, int[] rawToScrubbed) {
+        int next = 0;
+        int raw = 0;
+        while (raw < rawToScrubbed.length) {
+            if (rawToScrubbed[raw] != next) {
+                raw++;
+                continue;
+            }
+            int run = raw;
+            while (run < rawToScrubbed.length && rawToScrubbed[run] == next + (run - raw)) {
+                run++;
+            }
+            if (raw != next) {
+                store.move(raw, next, run - raw);
+            }
+            next += run - raw;
+            raw = run;
+        }
+    }
+
+    private static float normOf(float[] vector) {
+        float norm = 0;
+        for (float v : vector) {
+            norm += v * v;
+        }
+        return (float) Math.sqrt(norm);
+    }
+
+    private static long hashOf(float[] vector) {
+        long hash = vector.length;
+        for (float v : vector) {
+            hash = (hash ^ Float.floatToRawIntBits(v)) * 0x9E3779B97F4A7C15L;
+        }
+        return hash ^ (hash >>> 32);
+    }
+
+    /**
+     * Open-addressing table from vector hashes to the raw ordinal of the first vector with those bytes.
+     */
+    private static final class UniqueVectors {
+        private final VectorStore store;
+        private final long[] hashes;
+        private final int[] ordinals;
+        private final int mask;
+
+        UniqueVectors(VectorStore store, int capacity) {
+            this.store = store;
+            int size = Integer.highestOneBit(Math.max(2, 2 * capacity - 1)) << 1;
+            this.hashes = new long[size];
+            this.ordinals = new int[size];
+            this.mask = size - 1;
+            Arrays.fill(ordinals, DROPPED);
+        }
+
+        /**
+         * @return the raw ordinal of the first vector equal to the one at {@code raw}, which is {@code raw} itself
+         *         if that vector was not seen yet
+         */
+        int putIfAbsent(long hash, int raw) {
+            MemorySegment vector = store.segment(raw);
+            for (int slot = (int) hash & mask; ; slot = (slot + 1) & mask) {
+                int ordinal = ordinals[slot];
+                if (ordinal == DROPPED) {
+                    hashes[slot] = hash;
+                    ordinals[slot] = raw;
+                    return raw;
+                }
+                if (hashes[slot] == hash && store.segment(ordinal).mismatch(vector) == -1) {
+                    return ordinal;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package jvector;
+
+import io.github.jbellis.jvector.disk.RandomAccessReader;
+import io.github.jbellis.jvector.disk.ReaderSupplier;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.FunctionDescriptor;
+import java.lang.foreign.Linker;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.lang.invoke.MethodHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * {@link RandomAccessReader} over a file mapped as a {@link MemorySegment}.
+ * Unlike {@link MMapReader}, arrays are filled with a single bulk {@link MemorySegment#copy} that also swaps
+ * the big-endian bytes, with no intermediate scratch array or {@link ByteBuffer} view.
+ */
+public class MemorySegmentReader implements RandomAccessReader {
+    private static final ValueLayout.OfInt INT_BE = ValueLayout.JAVA_INT_UNALIGNED.withOrder(ByteOrder.BIG_ENDIAN);
+    private static final ValueLayout.OfFloat FLOAT_BE = ValueLayout.JAVA_FLOAT_UNALIGNED.withOrder(ByteOrder.BIG_ENDIAN);
+    private static final ValueLayout.OfLong LONG_BE = ValueLayout.JAVA_LONG_UNALIGNED.withOrder(ByteOrder.BIG_ENDIAN);
+
+    private final MemorySegment segment;
+    private long position;
+
+    public MemorySegmentReader(MemorySegment segment) {
+        this.segment = segment;
+    }
+
+    @Override
+    public void seek(long offset) {
+        position = offset;
+    }
+
+    @Override
+    public long getPosition() {
+        return position;
+    }
+
+    @Override
+    public int readInt() {
+        var value = segment.get(INT_BE, position);
+        position += Integer.BYTES;
+        return value;
+    }
+
+    @Override
+    public float readFloat() {
+        var value = segment.get(FLOAT_BE, position);
+        position += Float.BYTES;
+        return value;
+    }
+
+    @Override
+    public void readFully(byte[] bytes) {
+        MemorySegment.copy(segment, ValueLayout.JAVA_BYTE, position, bytes, 0, bytes.length);
+        position += bytes.length;
+    }
+
+    @Override
+    public void readFully(ByteBuffer buffer) {
+        var length = buffer.remaining();
+        MemorySegment.ofBuffer(buffer).copyFrom(segment.asSlice(position, length));
+        buffer.position(buffer.limit());
+        position += length;
+    }
+
+    @Override
+    public void readFully(float[] floats) {
+        read(floats, 0, floats.length);
+    }
+
+    @Override
+    public void readFully(long[] longs) {
+        MemorySegment.copy(segment, LONG_BE, position, longs, 0, longs.length);
+        position += (long) longs.length * Long.BYTES;
+    }
+
+    @Override
+    public void read(int[] ints, int offset, int count) {
+        MemorySegment.copy(segment, INT_BE, position, ints, offset, count);
+        position += (long) count * Integer.BYTES;
+    }
+
+    @Override
+    public void read(float[] floats, int offset, int count) {
+        MemorySegment.copy(segment, FLOAT_BE, position, floats, offset, count);
+        position += (long) count * Float.BYTES;
+    }
+
+    @Override
+    public void close() {
+        // don't unmap the segment, let the Supplier handle that
+    }
+
+    /**
+     * {@code madvise(2)} hints about the expected access pattern of the mapped file.
+     * The values are the same on Linux and macOS.
+     */
+    public enum Advice {
+        normal(0),
+        random(1),
+        sequential(2),
+        willneed(3);
+
+        private final int value;
+
+        Advice(int value) {
+            this.value = value;
+        }
+    }
+
+    public static class Supplier implements ReaderSupplier {
+        private final Arena arena;
+        private final MemorySegment segment;
+
+        public Supplier(Path path) throws IOException {
+            this(path, Advice.normal);
+        }
+
+        public Supplier(Path path, Advice advice) throws IOException {
+            arena = Arena.ofShared();
+            try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size(), arena);
+            }
+            if (advice != Advice.normal) {
+                madvise(segment, advice);
+            }
+        }
+
+        @Override
+        public RandomAccessReader get() {
+            return new MemorySegmentReader(segment);
+        }
+
+        @Override
+        public void close() {
+            // the querier closes the supplier after the graph index, which already closed it
+            if (arena.scope().isAlive()) {
+                arena.close();
+            }
+        }
+    }
+
+    private static MethodHandle madvise;
+
+    private static synchronized void madvise(MemorySegment segment, Advice advice) throws IOException {
+        if (madvise == null) {
+            var linker = Linker.nativeLinker();
+            var symbol = linker.defaultLookup()
+                    .find("madvise")
+                    .orElseThrow(() -> new UnsupportedOperationException("madvise is not available on this platform"));
+            madvise = linker.downcallHandle(
+                    symbol,
+                    FunctionDescriptor.of(
+                            ValueLayout.JAVA_INT, ValueLayout.ADDRESS, ValueLayout.JAVA_LONG, ValueLayout.JAVA_INT));
+        }
+
+        int result;
+        try {
+            result = (int) madvise.invokeExact(segment, segment.byteSize(), advice.value);
+        } catch (Throwable e) {
+            throw new IOException("madvise failed", e);
+        }
+        if (result != 0) {
+            throw new IOException("madvise " + advice + " failed with " + result);
+        }
+    }
+}
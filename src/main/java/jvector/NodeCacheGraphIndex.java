@@ -0,0 +1,269 @@
+package jvector;
+
+import io.github.jbellis.jvector.graph.GraphIndex;
+import io.github.jbellis.jvector.graph.NodesIterator;
+import io.github.jbellis.jvector.graph.disk.CachingGraphIndex;
+import io.github.jbellis.jvector.graph.disk.GraphCache;
+import io.github.jbellis.jvector.graph.disk.OnDiskGraphIndex;
+import org.agrona.collections.Int2ObjectHashMap;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * On-disk graph whose views read the neighbors of some nodes from memory, as {@link CachingGraphIndex} does,
+ * with the cached nodes chosen by a {@link Policy}, and counting the hits and misses of the cache.
+ */
+public class NodeCacheGraphIndex implements GraphIndex {
+
+    /**
+     * <ul>
+     *     <li>{@code none}: every node is read from disk;</li>
+     *     <li>{@code depth}: the nodes at most {@code depth} hops away from the entry node,
+     *     as {@link CachingGraphIndex};</li>
+     *     <li>{@code bytes}: the nodes closest to the entry node, in breadth-first order, up to a size;</li>
+     *     <li>{@code hot}: the nodes whose neighbors were read the most during the warmup, up to a size,
+     *     every node being read from disk until then.</li>
+     * </ul>
+     */
+    public enum Policy {
+        none,
+        depth,
+        bytes,
+        hot
+    }
+
+    private final OnDiskGraphIndex graph;
+    private final Policy policy;
+    private final long maxBytes;
+    // one cache per view, which counts its own hits and misses, summed when they are read
+    private final Queue<Cache> caches = new ConcurrentLinkedQueue<>();
+    // counts of the views at the end of the warmup, subtracted from their sums rather than resetting the views,
+    // so that only the thread of a view writes its counters
+    private volatile long warmupHits;
+    private volatile long warmupMisses;
+    private volatile Int2ObjectHashMap<GraphCache.CachedNode> nodes = new Int2ObjectHashMap<>();
+    private volatile long bytes;
+    // neighbor reads of every node, until the hot nodes are cached
+    private volatile AtomicIntegerArray accesses;
+
+    /**
+     * @param depth    maximum distance from the entry node of the cached nodes, with the {@code depth} policy
+     * @param maxBytes maximum size of the cached neighbors, with the {@code bytes} and {@code hot} policies
+     */
+    public NodeCacheGraphIndex(OnDiskGraphIndex graph, Policy policy, int depth, long maxBytes) throws IOException {
+        this.graph = graph;
+        this.policy = policy;
+        this.maxBytes = maxBytes;
+        switch (policy) {
+            case none -> {}
+            case depth -> cacheClosest(depth, Long.MAX_VALUE);
+            case bytes -> cacheClosest(Integer.MAX_VALUE, maxBytes);
+            case hot -> accesses = new AtomicIntegerArray(graph.size());
+        }
+    }
+
+    private void cacheClosest(int maxDepth, long maxBytes) throws IOException {
+        var cached = new Int2ObjectHashMap<GraphCache.CachedNode>();
+        long size = 0;
+        try (var view = graph.getView()) {
+            // breadth-first traversal, the nodes between head and count are queued
+            var queue = new int[graph.size()];
+            var depths = new int[graph.size()];
+            var queued = new boolean[graph.size()];
+            int count = 0;
+            queue[count++] = view.entryNode();
+            queued[view.entryNode()] = true;
+            for (int head = 0; head < count; head++) {
+                int node = queue[head];
+                var cachedNode = readNode(view, node);
+                if (size + cachedNode.ramBytesUsed() > maxBytes) {
+                    break;
+                }
+                cached.put(node, cachedNode);
+                size += cachedNode.ramBytesUsed();
+                if (depths[head] == maxDepth) {
+                    continue;
+                }
+                for (int neighbor : cachedNode.neighbors) {
+                    if (!queued[neighbor]) {
+                        queued[neighbor] = true;
+                        depths[count] = depths[head] + 1;
+                        queue[count++] = neighbor;
+                    }
+                }
+            }
+        }
+        this.nodes = cached;
+        this.bytes = size;
+    }
+
+    /**
+     * With the {@code hot} policy, caches the nodes most read since the querier was opened, the first time only.
+     * With all policies, resets the hit and miss counters.
+     */
+    public synchronized void endWarmup() throws IOException {
+        var counts = accesses;
+        if (counts != null) {
+            // read count in the high bits, to sort by count then node
+            var hotness = new long[counts.length()];
+            int found = 0;
+            for (int node = 0; node < counts.length(); node++) {
+                int count = counts.get(node);
+                if (count > 0) {
+                    hotness[found++] = ((long) count << 32) | node;
+                }
+            }
+            Arrays.sort(hotness, 0, found);
+
+            var cached = new Int2ObjectHashMap<GraphCache.CachedNode>();
+            long size = 0;
+            try (var view = graph.getView()) {
+                for (int i = found - 1; i >= 0; i--) {
+                    var node = (int) hotness[i];
+                    var cachedNode = readNode(view, node);
+                    if (size + cachedNode.ramBytesUsed() > maxBytes) {
+                        break;
+                    }
+                    cached.put(node, cachedNode);
+                    size += cachedNode.ramBytesUsed();
+                }
+            }
+            this.nodes = cached;
+            this.bytes = size;
+            this.accesses = null;
+        }
+        warmupHits = sumHits();
+        warmupMisses = sumMisses();
+    }
+
+    private static GraphCache.CachedNode readNode(OnDiskGraphIndex.View view, int node) {
+        var it = view.getNeighborsIterator(node);
+        var neighbors = new int[it.size()];
+        for (int i = 0; it.hasNext(); i++) {
+            neighbors[i] = it.nextInt();
+        }
+        return new GraphCache.CachedNode(neighbors);
+    }
+
+    public Policy policy() {
+        return policy;
+    }
+
+    /**
+     * Safe to read while the views are used, e.g. by a metrics scrape, but only exact once they are not anymore,
+     * e.g. after the test queries.
+     */
+    public long hits() {
+        return sumHits() - warmupHits;
+    }
+
+    /**
+     * Safe to read while the views are used, e.g. by a metrics scrape, but only exact once they are not anymore,
+     * e.g. after the test queries.
+     */
+    public long misses() {
+        return sumMisses() - warmupMisses;
+    }
+
+    private long sumHits() {
+        return caches.stream().mapToLong(cache -> (long) Cache.HITS.getOpaque(cache)).sum();
+    }
+
+    private long sumMisses() {
+        return caches.stream().mapToLong(cache -> (long) Cache.MISSES.getOpaque(cache)).sum();
+    }
+
+    public int cachedNodes() {
+        return nodes.size();
+    }
+
+    public long cachedBytes() {
+        return bytes;
+    }
+
+    @Override
+    public int size() {
+        return graph.size();
+    }
+
+    @Override
+    public NodesIterator getNodes() {
+        return graph.getNodes();
+    }
+
+    @Override
+    public GraphIndex.ScoringView getView() {
+        var cache = new Cache();
+        caches.add(cache);
+        return new CachingGraphIndex.View(cache, graph.getView());
+    }
+
+    @Override
+    public int maxDegree() {
+        return graph.maxDegree();
+    }
+
+    @Override
+    public long ramBytesUsed() {
+        return graph.ramBytesUsed() + bytes;
+    }
+
+    @Override
+    public void close() throws IOException {
+        graph.close();
+    }
+
+    @Override
+    public String toString() {
+        return STR."NodeCacheGraphIndex(graph=\{graph}, policy=\{policy}, nodes=\{cachedNodes()})";
+    }
+
+    /**
+     * Read by a view for every node whose neighbors are visited, the view reading from disk on a miss.
+     * A view is used by one thread at a time, so only that thread writes its counters, rather than shared adders,
+     * with opaque accesses so that other threads read their latest values.
+     */
+    private class Cache extends GraphCache {
+        private static final VarHandle HITS;
+        private static final VarHandle MISSES;
+
+        static {
+            try {
+                var lookup = MethodHandles.lookup();
+                HITS = lookup.findVarHandle(Cache.class, "hits", long.class);
+                MISSES = lookup.findVarHandle(Cache.class, "misses", long.class);
+            } catch (ReflectiveOperationException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+
+        private long hits;
+        private long misses;
+
+        @Override
+        public CachedNode getNode(int node) {
+            var counts = accesses;
+            if (counts != null) {
+                counts.incrementAndGet(node);
+            }
+            var cached = nodes.get(node);
+            if (cached == null) {
+                MISSES.setOpaque(this, (long) MISSES.getOpaque(this) + 1);
+            } else {
+                HITS.setOpaque(this, (long) HITS.getOpaque(this) + 1);
+            }
+            return cached;
+        }
+
+        @Override
+        public long ramBytesUsed() {
+            return bytes;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package jvector;
+
+import io.github.jbellis.jvector.graph.RandomAccessVectorValues;
+import io.github.jbellis.jvector.vector.VectorizationProvider;
+import io.github.jbellis.jvector.vector.types.VectorFloat;
+import io.github.jbellis.jvector.vector.types.VectorTypeSupport;
+import util.VectorStore;
+
+import java.util.List;
+
+/**
+ * {@link RandomAccessVectorValues} view over a {@link VectorStore}.
+ * Values are shared: every vector is copied into the same scratch array, so each thread
+ * must use its own {@link #copy()} (e.g. through {@link #threadLocalSupplier()}).
+ */
+public class VectorStoreValues implements RandomAccessVectorValues {
+    private static final VectorTypeSupport vectorTypeSupport = VectorizationProvider.getInstance().getVectorTypeSupport();
+
+    private final VectorStore store;
+    private final float[] scratch;
+    private final VectorFloat<?> scratchVector;
+
+    public VectorStoreValues(VectorStore store) {
+        this.store = store;
+        this.scratch = new float[store.dimension()];
+        this.scratchVector = vectorTypeSupport.createFloatVector(scratch);
+    }
+
+    public static VectorStore copyOf(List<VectorFloat<?>> vectors) {
+        var dimension = vectors.get(0).length();
+        var store = VectorStore.allocate(vectors.size(), dimension);
+        var vector = new float[dimension];
+        for (int i = 0; i < vectors.size(); i++) {
+            var v = vectors.get(i);
+            for (int j = 0; j < dimension; j++) {
+                vector[j] = v.get(j);
+            }
+            store.set(i, vector);
+        }
+        return store;
+    }
+
+    public VectorStore store() {
+        return store;
+    }
+
+    @Override
+    public int size() {
+        return store.size();
+    }
+
+    @Override
+    public int dimension() {
+        return store.dimension();
+    }
+
+    @Override
+    public VectorFloat<?> getVector(int nodeId) {
+        store.get(nodeId, scratch);
+        return scratchVector;
+    }
+
+    @Override
+    public boolean isValueShared() {
+        return true;
+    }
+
+    @Override
+    public RandomAccessVectorValues copy() {
+        return new VectorStoreValues(store);
+    }
+}
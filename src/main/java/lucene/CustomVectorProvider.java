@@ -1,83 +1,60 @@
 package lucene;
 
-import org.apache.lucene.index.RandomAccessVectorValues;
-import org.apache.lucene.index.RandomAccessVectorValuesProducer;
-import org.apache.lucene.index.VectorValues;
-import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.hnsw.RandomAccessVectorValues;
+import util.VectorStore;
 
 import java.io.IOException;
 import java.util.Arrays;
 
-public class CustomVectorProvider extends VectorValues implements RandomAccessVectorValues, RandomAccessVectorValuesProducer {
+/**
+ * Lucene view over a {@link VectorStore}.
+ * {@link #vectorValue(int)} copies into a scratch array owned by this instance,
+ * so each thread must use its own {@link #randomAccess()} copy; {@link #get(int)} always returns a new array.
+ */
+public class CustomVectorProvider implements RandomAccessVectorValues.Floats {
 
-    int doc = -1;
-    private final float[][] data;
+    private final VectorStore data;
+    private final float[] scratch;
 
     public CustomVectorProvider(float[][] data) {
+        this(VectorStore.copyOf(data));
+    }
+
+    public CustomVectorProvider(VectorStore data) {
         this.data = data;
+        this.scratch = new float[data.dimension()];
     }
 
     public float[] get(int idx) {
-        return data[idx];
+        return data.get(idx);
     }
 
     @Override
     public float[] vectorValue(int i) throws IOException {
-        return data[i];
+        data.get(i, scratch);
+        return scratch;
     }
 
-    @Override
-    public BytesRef binaryValue(int i) throws IOException {
-        return null;
+    public CustomVectorProvider randomAccess() {
+        return new CustomVectorProvider(data);
     }
 
     @Override
-    public RandomAccessVectorValues randomAccess() {
-        return new CustomVectorProvider(data);
+    public CustomVectorProvider copy() {
+        return randomAccess();
     }
 
     @Override
     public int dimension() {
-        return data[0].length;
+        return data.dimension();
     }
 
     @Override
     public int size() {
-        return data.length;
-    }
-
-    @Override
-    public float[] vectorValue() throws IOException {
-        return vectorValue(doc);
-    }
-
-    @Override
-    public int docID() {
-        return doc;
+        return data.size();
     }
 
-    @Override
-    public int nextDoc() throws IOException {
-        return advance(doc + 1);
-    }
-
-    @Override
-    public int advance(int target) throws IOException {
-        if (target >= 0 && target < data.length) {
-            doc = target;
-        } else {
-            doc = NO_MORE_DOCS;
-        }
-        return doc;
-    }
-
-    @Override
-    public long cost() {
-        return data.length;
-    }
-
-
     public void print(int ord) {
-        System.out.println(ord + " => " + Arrays.toString(data[ord]));
+        System.out.println(ord + " => " + Arrays.toString(get(ord)));
     }
 }
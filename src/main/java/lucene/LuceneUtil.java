@@ -2,20 +2,63 @@ package lucene;
 
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.index.ReaderUtil;
+import org.apache.lucene.search.DocIdSetIterator;
 import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TaskExecutor;
 import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TotalHits;
 import org.apache.lucene.util.Bits;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
 
 public class LuceneUtil {
 
+    /**
+     * Reads the numeric doc values of {@code field} of all the segments into an array indexed by doc id,
+     * so that they are resolved without any per-document lookup.
+     *
+     * @return the values by doc id, or null if no segment has doc values for {@code field}
+     */
+    public static int[] readDocValues(IndexReader reader, String field) throws IOException {
+        var values = new int[reader.maxDoc()];
+        var found = false;
+        for (LeafReaderContext ctx : reader.leaves()) {
+            NumericDocValues docValues = ctx.reader().getNumericDocValues(field);
+            if (docValues == null) {
+                continue;
+            }
+            found = true;
+            for (int doc = docValues.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = docValues.nextDoc()) {
+                values[ctx.docBase + doc] = (int) docValues.longValue();
+            }
+        }
+        return found ? values : null;
+    }
+
+    /**
+     * @return the numeric doc value of {@code field} of a single document, looked up in its segment
+     */
+    public static int readDocValue(IndexReader reader, String field, int doc) throws IOException {
+        var leaves = reader.leaves();
+        var ctx = leaves.get(ReaderUtil.subIndex(doc, leaves));
+        NumericDocValues docValues = ctx.reader().getNumericDocValues(field);
+        if (docValues == null || !docValues.advanceExact(doc - ctx.docBase)) {
+            throw new IllegalStateException(STR."doc \{doc} has no \{field} doc value");
+        }
+        return (int) docValues.longValue();
+    }
+
     public static TopDocs doKnnSearch(
             IndexReader reader, String field, float[] vector, int docLimit, int fanout) throws IOException {
         TopDocs[] results = new TopDocs[reader.leaves().size()];
         for (LeafReaderContext ctx : reader.leaves()) {
             Bits liveDocs = ctx.reader().getLiveDocs();
-            results[ctx.ord] = ctx.reader().searchNearestVectors(field, vector, docLimit + fanout, liveDocs);
+            results[ctx.ord] = ctx.reader().searchNearestVectors(field, vector, docLimit + fanout, liveDocs, Integer.MAX_VALUE);
             int docBase = ctx.docBase;
             for (ScoreDoc scoreDoc : results[ctx.ord].scoreDocs) {
                 scoreDoc.doc += docBase;
@@ -24,4 +67,48 @@ public class LuceneUtil {
         return TopDocs.merge(docLimit, results);
     }
 
+    /**
+     * Same results as {@link #doKnnSearch} with no fanout for each vector, but visiting the segments once
+     * for the whole batch, so that consecutive searches hit the same segment graph and vectors.
+     * The segments are searched by the tasks of {@code executor}, in parallel if it has several threads.
+     */
+    public static TopDocs[] doKnnSearchBatch(
+            IndexReader reader, String field, List<?> vectors, int docLimit, TaskExecutor executor)
+            throws IOException {
+        var tasks = new ArrayList<Callable<TopDocs[]>>();
+        for (LeafReaderContext ctx : reader.leaves()) {
+            tasks.add(() -> searchLeaf(ctx, field, vectors, docLimit));
+        }
+        // per leaf, then per vector
+        var perLeafResults = executor.invokeAll(tasks);
+
+        TopDocs[] results = new TopDocs[vectors.size()];
+        for (int i = 0; i < vectors.size(); i++) {
+            var perLeaf = new TopDocs[perLeafResults.size()];
+            for (int leaf = 0; leaf < perLeaf.length; leaf++) {
+                perLeaf[leaf] = perLeafResults.get(leaf)[i];
+            }
+            results[i] = TopDocs.merge(docLimit, perLeaf);
+        }
+        return results;
+    }
+
+    private static TopDocs[] searchLeaf(LeafReaderContext ctx, String field, List<?> vectors, int docLimit)
+            throws IOException {
+        Bits liveDocs = ctx.reader().getLiveDocs();
+        var results = new TopDocs[vectors.size()];
+        for (int i = 0; i < vectors.size(); i++) {
+            var leafResults = ctx.reader().searchNearestVectors(
+                    field, (float[]) vectors.get(i), docLimit, liveDocs, Integer.MAX_VALUE);
+            if (leafResults == null) {
+                leafResults = new TopDocs(new TotalHits(0, TotalHits.Relation.EQUAL_TO), new ScoreDoc[0]);
+            }
+            for (ScoreDoc scoreDoc : leafResults.scoreDocs) {
+                scoreDoc.doc += ctx.docBase;
+            }
+            results[i] = leafResults;
+        }
+        return results;
+    }
+
 }
@@ -0,0 +1,49 @@
+package lucene;
+
+import org.apache.lucene.codecs.KnnVectorsFormat;
+import org.apache.lucene.codecs.lucene99.Lucene99Codec;
+import org.apache.lucene.codecs.lucene99.Lucene99HnswScalarQuantizedVectorsFormat;
+import org.apache.lucene.codecs.lucene99.Lucene99HnswVectorsFormat;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * HNSW vectors formats of the Lucene codec, by the quantization of the vectors stored next to the graph.
+ * The quantized formats keep the raw vectors as well, to rescore the candidates and to merge segments,
+ * but only the quantized ones are read while searching the graph.
+ */
+public enum VectorFormat {
+    none,
+    int8,
+    int4;
+
+    /**
+     * @param numMergeWorkers number of threads building the graph of a merged segment,
+     *                        1 to build it on the merging thread
+     * @param mergeExecutor   executor of these threads, null with a single worker
+     */
+    public KnnVectorsFormat create(int maxConn, int beamWidth, int numMergeWorkers, ExecutorService mergeExecutor) {
+        return switch (this) {
+            case none -> new Lucene99HnswVectorsFormat(maxConn, beamWidth, numMergeWorkers, mergeExecutor);
+            // one byte per value, but only 7 bits so that the scorer's dot products of signed bytes stay positive,
+            // as in Lucene's default; 4 bits need the dynamic confidence interval (0), and are packed two per byte
+            case int8 -> new Lucene99HnswScalarQuantizedVectorsFormat(
+                    maxConn, beamWidth, numMergeWorkers, 7, false, null, mergeExecutor);
+            case int4 -> new Lucene99HnswScalarQuantizedVectorsFormat(
+                    maxConn, beamWidth, numMergeWorkers, 4, true, 0f, mergeExecutor);
+        };
+    }
+
+    /**
+     * Codec writing the vectors of every field in the given format.
+     * Readers don't need it: the format of every field is recorded in the index and loaded by name.
+     */
+    public static Lucene99Codec codec(KnnVectorsFormat format) {
+        return new Lucene99Codec() {
+            @Override
+            public KnnVectorsFormat getKnnVectorsFormatForField(String field) {
+                return format;
+            }
+        };
+    }
+}
@@ -4,12 +4,18 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import com.google.common.base.Preconditions;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 public class Config {
 
@@ -92,6 +98,78 @@ public class Config {
       }
     }
 
+  /**
+   * A grid of build and query parameters on one dataset, where every {@code build} and {@code query} parameter,
+   * as well as {@code k}, is either a single value, a list of values, or an inclusive range of integers
+   * {@code start..end} or {@code start..end:step}. Combinations are expanded in file order,
+   * the last parameter varying the fastest.
+   */
+  public record SweepSpec(
+          String dataset,
+          String provider,
+          String type,
+          Map<String, Object> build,
+          Map<String, Object> query,
+          Object k,
+          Map<String, String> runtime) {
+
+    private static final Pattern RANGE = Pattern.compile("(-?\\d+)\\.\\.(-?\\d+)(?::(\\d+))?");
+
+    public static SweepSpec load(String file) throws Exception {
+      return Config.fromYaml(file, SweepSpec.class);
+    }
+
+    public List<BuildSpec> buildSpecs() {
+      return grid(build).stream()
+              .map(parameters -> new BuildSpec(dataset, provider, type, parameters, runtime))
+              .toList();
+    }
+
+    /**
+     * Query specs to run against the index of the given build spec, for every {@code k} in turn.
+     */
+    public List<QuerySpec> querySpecs(BuildSpec buildSpec) {
+      var specs = new ArrayList<QuerySpec>();
+      for (var k : values(this.k)) {
+        for (var parameters : grid(query)) {
+          specs.add(new QuerySpec(dataset, provider, type, buildSpec.build(), parameters, Integer.parseInt(k), runtime));
+        }
+      }
+      return specs;
+    }
+
+    private static List<Map<String, String>> grid(Map<String, Object> parameters) {
+      List<Map<String, String>> grid = List.of(Map.of());
+      for (var parameter : parameters.entrySet()) {
+        var expanded = new ArrayList<Map<String, String>>();
+        for (var point : grid) {
+          for (var value : values(parameter.getValue())) {
+            var next = new LinkedHashMap<>(point);
+            next.put(parameter.getKey(), value);
+            expanded.add(next);
+          }
+        }
+        grid = expanded;
+      }
+      return grid;
+    }
+
+    private static List<String> values(Object value) {
+      if (value instanceof List<?> list) {
+        return list.stream().map(String::valueOf).toList();
+      }
+      var range = RANGE.matcher(String.valueOf(value));
+      if (!range.matches()) {
+        return List.of(String.valueOf(value));
+      }
+      int start = Integer.parseInt(range.group(1));
+      int end = Integer.parseInt(range.group(2));
+      int step = range.group(3) == null ? 1 : Integer.parseInt(range.group(3));
+      Preconditions.checkArgument(step > 0 && start <= end, "invalid range %s", value);
+      return IntStream.iterate(start, i -> i <= end, i -> i + step).mapToObj(String::valueOf).toList();
+    }
+  }
+
   public static int getQueryThreads(Map<String, String> runtime) {
     return Optional.ofNullable(runtime.get("queryThreads")).map(Integer::parseInt).orElse(5);
   }
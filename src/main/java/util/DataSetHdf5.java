@@ -2,9 +2,12 @@ package util;
 
 import java.nio.file.Path;
 
+/**
+ * @param groundTruth neighbors of every query, as ordinals of {@code baseVectors}
+ */
 public record DataSetHdf5(
         DataSetVector.SimilarityFunction similarityFunction,
-        float[][] baseVectorsArray,
+        VectorStore baseVectors,
         float[][] queryVectorsArray,
         int[][] groundTruth,
         Path path
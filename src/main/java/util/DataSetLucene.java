@@ -15,6 +15,13 @@ public class DataSetLucene implements DataSetVector<
     public DataSetLucene(
             String name, DataSetVector.SimilarityFunction similarityFunction, 
             float[][] baseVectors, float[][] queryVectors, int[][] groundTruth
+    ) {
+        this(name, similarityFunction, VectorStore.copyOf(baseVectors), queryVectors, groundTruth);
+    }
+
+    public DataSetLucene(
+            String name, DataSetVector.SimilarityFunction similarityFunction,
+            VectorStore baseVectors, float[][] queryVectors, int[][] groundTruth
     ) {
         this.name = name;
         this.similarityFunction = similarityFunction;
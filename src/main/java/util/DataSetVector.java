@@ -5,7 +5,7 @@ import jvector.Hdf5Loader;
 import java.io.IOException;
 import java.nio.file.Path;
 
-import static jvector.Hdf5Loader.getResult;
+import static jvector.Hdf5Loader.getCachedResult;
 
 public interface DataSetVector<T,V,W,Y> {
     T baseVectorsArray();
@@ -15,11 +15,15 @@ public interface DataSetVector<T,V,W,Y> {
     String name();
     int getDimension();
     
+    /**
+     * The train vectors are memory-mapped from the fvecs cache of the hdf5 file, see {@link Hdf5Loader#getCachedResult}.
+     */
     static DataSetVector load(String provider, Path datasetsPath, String name)
             throws IOException, InterruptedException {
 
         String fileName = name.endsWith(".hdf5") ? name : (name + ".hdf5");
-        DataSetHdf5 result = getResult(fileName);
+        // JVector datasets are scrubbed from zero and duplicate vectors, Lucene ones are indexed as is
+        DataSetHdf5 result = getCachedResult(fileName, provider.equals("jvector"));
         if (provider.equals("lucene")) {
             return Hdf5Loader.loadLucene(result);
         } else if (provider.equals("jvector")) {
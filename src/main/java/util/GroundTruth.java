@@ -0,0 +1,98 @@
+package util;
+
+import io.github.jbellis.jvector.vector.types.VectorFloat;
+import jvector.DataSetJVector;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+/**
+ * Exact nearest neighbors among a subset of the base vectors of a dataset, found by scoring every one of them,
+ * for the workloads whose candidates are not the whole dataset that the precomputed ground truth is about.
+ */
+public final class GroundTruth {
+
+    private GroundTruth() {}
+
+    /**
+     * @param accept whether the base vector of an ordinal is a candidate
+     * @return the ordinals of the (at most) {@code k} candidates most similar to {@code query}, sorted by ordinal
+     *         like the precomputed ground truth the benchmarks compare results with
+     */
+    public static int[] exact(DataSetVector dataset, Object query, int k, IntPredicate accept) throws IOException {
+        var best = new TopK(k);
+        if (dataset instanceof DataSetLucene lucene) {
+            // vector values are shared, so the scan reads through its own copy
+            var vectors = lucene.baseVectorsArray().randomAccess();
+            var similarity = lucene.similarityFunction();
+            for (int i = 0; i < vectors.size(); i++) {
+                if (accept.test(i)) {
+                    best.add(i, similarity.compare((float[]) query, vectors.vectorValue(i)));
+                }
+            }
+        } else if (dataset instanceof DataSetJVector jVector) {
+            var vectors = jVector.getBaseRavv().copy();
+            var similarity = jVector.similarityFunction();
+            for (int i = 0; i < vectors.size(); i++) {
+                if (accept.test(i)) {
+                    best.add(i, similarity.compare((VectorFloat<?>) query, vectors.getVector(i)));
+                }
+            }
+        } else {
+            throw new RuntimeException("Unrecognized vector dataset: " + dataset.name());
+        }
+        return best.sortedIds();
+    }
+
+    /**
+     * Min-heap of the best scores seen, whose root is the one the next better candidate replaces.
+     */
+    private static final class TopK {
+        private final int[] ids;
+        private final float[] scores;
+        private int count;
+
+        TopK(int k) {
+            ids = new int[k];
+            scores = new float[k];
+        }
+
+        void add(int id, float score) {
+            if (count < ids.length) {
+                int i = count++;
+                // sift up
+                while (i > 0 && scores[(i - 1) / 2] > score) {
+                    ids[i] = ids[(i - 1) / 2];
+                    scores[i] = scores[(i - 1) / 2];
+                    i = (i - 1) / 2;
+                }
+                ids[i] = id;
+                scores[i] = score;
+            } else if (count > 0 && score > scores[0]) {
+                int i = 0;
+                // sift down
+                while (2 * i + 1 < count) {
+                    int child = 2 * i + 1;
+                    if (child + 1 < count && scores[child + 1] < scores[child]) {
+                        child++;
+                    }
+                    if (scores[child] >= score) {
+                        break;
+                    }
+                    ids[i] = ids[child];
+                    scores[i] = scores[child];
+                    i = child;
+                }
+                ids[i] = id;
+                scores[i] = score;
+            }
+        }
+
+        int[] sortedIds() {
+            var sorted = Arrays.copyOf(ids, count);
+            Arrays.sort(sorted);
+            return sorted;
+        }
+    }
+}
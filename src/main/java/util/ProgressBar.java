@@ -22,6 +22,10 @@ public class ProgressBar implements AutoCloseable {
     this.wrapped.step();
   }
 
+  public void inc(int steps) {
+    this.wrapped.stepBy(steps);
+  }
+
   @Override
   public void close() {
     this.wrapped.close();
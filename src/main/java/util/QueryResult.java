@@ -0,0 +1,6 @@
+package util;
+
+/**
+ * Mean recall (NaN when not collected) and throughput of a test run, as reported in the query CSV.
+ */
+public record QueryResult(String description, int k, double recall, double throughput) {}
@@ -0,0 +1,91 @@
+package util;
+
+import org.HdrHistogram.Histogram;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Query statistics recorded by a single thread, with plain fields and constant memory whatever the number of queries.
+ * Each query thread gets its own instance from a {@link Recorder}, so recording takes no lock and shares no cache line,
+ * and the instances are merged once the run is completed.
+ */
+public final class QueryStats {
+    private static final int LATENCY_SIGNIFICANT_DIGITS = 3;
+
+    public final Summary recalls = new Summary();
+    public final Summary precisions = new Summary();
+    public final Summary executionDurations = new Summary();
+    public final Summary minorFaults = new Summary();
+    public final Summary majorFaults = new Summary();
+    public final Histogram latencies = new Histogram(LATENCY_SIGNIFICANT_DIGITS);
+
+    private void merge(QueryStats other) {
+        recalls.merge(other.recalls);
+        precisions.merge(other.precisions);
+        executionDurations.merge(other.executionDurations);
+        minorFaults.merge(other.minorFaults);
+        majorFaults.merge(other.majorFaults);
+        latencies.add(other.latencies);
+    }
+
+    /**
+     * Count, sum and maximum of the recorded values, i.e. what the CSV output reports.
+     */
+    public static final class Summary {
+        private long n;
+        private double sum;
+        private double max = Double.NEGATIVE_INFINITY;
+
+        public void addValue(double value) {
+            n++;
+            sum += value;
+            max = Math.max(max, value);
+        }
+
+        private void merge(Summary other) {
+            n += other.n;
+            sum += other.sum;
+            max = Math.max(max, other.max);
+        }
+
+        public long getN() {
+            return n;
+        }
+
+        public double getSum() {
+            return sum;
+        }
+
+        public double getMean() {
+            return n == 0 ? Double.NaN : sum / n;
+        }
+
+        public double getMax() {
+            return n == 0 ? Double.NaN : max;
+        }
+    }
+
+    /**
+     * Hands out one {@link QueryStats} per thread. {@link #merge()} must be called after the recording threads are
+     * joined, which makes their writes visible.
+     */
+    public static final class Recorder {
+        private final Queue<QueryStats> threads = new ConcurrentLinkedQueue<>();
+        private final ThreadLocal<QueryStats> local = ThreadLocal.withInitial(() -> {
+            var stats = new QueryStats();
+            threads.add(stats);
+            return stats;
+        });
+
+        public QueryStats get() {
+            return local.get();
+        }
+
+        public QueryStats merge() {
+            var merged = new QueryStats();
+            threads.forEach(merged::merge);
+            return merged;
+        }
+    }
+}
@@ -2,30 +2,50 @@ package util;
 
 import com.google.common.base.Preconditions;
 
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
 import java.lang.reflect.Constructor;
+import java.lang.reflect.RecordComponent;
+import java.util.Arrays;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 public class Records {
 
+  /**
+   * Value of an optional record component, used when the parameter is not specified.
+   */
+  @Retention(RetentionPolicy.RUNTIME)
+  @Target(ElementType.RECORD_COMPONENT)
+  public @interface Default {
+    String value();
+  }
+
   @SuppressWarnings("unchecked")
   public static <T> T fromMap(Map<String, String> parameters, Class<T> clazz, String description) {
     var fields = clazz.getRecordComponents();
     Constructor<T> constructor = (Constructor<T>) clazz.getDeclaredConstructors()[0];
+    var names = Arrays.stream(fields).map(RecordComponent::getName).collect(Collectors.toSet());
+    var unexpected = parameters.keySet().stream().filter(name -> !names.contains(name)).sorted().toList();
     Preconditions.checkArgument(
-        constructor.getParameterCount() == parameters.size(),
-        "unexpected number of parameters when parsing %s. expected %s, got %s",
+        unexpected.isEmpty(),
+        "unexpected parameters when parsing %s. expected %s, got %s",
         description,
-        constructor.getParameterCount(),
-        parameters.size());
+        names,
+        unexpected);
 
     var args = new Object[fields.length];
     for (int i = 0; i < fields.length; i++) {
       var component = fields[i];
 
       var name = component.getName();
-      Preconditions.checkArgument(parameters.containsKey(name), "must specify %s", name);
+      var defaultValue = component.getAnnotation(Default.class);
+      Preconditions.checkArgument(
+          parameters.containsKey(name) || defaultValue != null, "must specify %s", name);
 
-      var value = parameters.get(name);
+      var value = parameters.containsKey(name) ? parameters.get(name) : defaultValue.value();
       var parsed = parse(value, component.getType());
       args[i] = parsed;
     }
@@ -1,12 +1,14 @@
 package util;
 
 import index.Index;
-import org.apache.commons.math3.stat.descriptive.SynchronizedDescriptiveStatistics;
+import org.HdrHistogram.Histogram;
 import oshi.SystemInfo;
 import oshi.hardware.HardwareAbstractionLayer;
 
 import java.io.*;
 import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -51,10 +53,45 @@ public class StatsUtil {
             "Maximum Major Faults",
             "Total Minor Faults",
             "Total Major Faults",
+            "Target QPS",
+            "Throughput (QPS)",
+            "P50 Latency (ns)",
+            "P99 Latency (ns)",
+            "P99.9 Latency (ns)",
+            "P99.99 Latency (ns)",
+            "Cache Hits",
+            "Cache Misses",
+            "Cache Hit Rate",
+            "Cache Size (bytes)",
             RAM_USAGE_KEY,
             AVAILABLE_MEMORY_KEY
     };
     
+    private static final String[] mixedHeader = new String[]{
+            INDEX_CONFIG_KEY,
+            "Elapsed (sec)",
+            "Live Vectors",
+            "Inserts",
+            "Deletes",
+            "Write Throughput (ops/s)",
+            "Queries",
+            "Throughput (QPS)",
+            "P50 Latency (ns)",
+            "P99 Latency (ns)",
+            "P99.9 Latency (ns)",
+            "Recall",
+            RAM_USAGE_KEY,
+            AVAILABLE_MEMORY_KEY
+    };
+
+    private static final String[] paretoHeader = new String[]{
+            INDEX_CONFIG_KEY,
+            "k",
+            "Avg Recall",
+            "Throughput (QPS)",
+            "Pareto Optimal"
+    };
+
     public static String escapeSpecialCharacters(String data) {
         if (data == null) {
             throw new IllegalArgumentException("Input data cannot be null");
@@ -95,16 +132,22 @@ public class StatsUtil {
 
     public static void appendToQueryCsv(
             String fileName, String indexDescriptions,
-            SynchronizedDescriptiveStatistics recalls, 
-            SynchronizedDescriptiveStatistics precisions, 
+            QueryStats.Recorder recorder,
             boolean testOnTrain, boolean recall,
-            SynchronizedDescriptiveStatistics executionDurations,
-            SynchronizedDescriptiveStatistics minorFaults,
-            SynchronizedDescriptiveStatistics majorFaults, boolean threadStats,
-            int k
-
+            boolean threadStats,
+            int k,
+            double targetQps, Duration wallDuration,
+            Index.Querier.CacheStats cacheStats
     ){
-        long totalQueriesValue = recalls.getN();
+        var stats = recorder.merge();
+        var recalls = stats.recalls;
+        var precisions = stats.precisions;
+        var executionDurations = stats.executionDurations;
+        var minorFaults = stats.minorFaults;
+        var majorFaults = stats.majorFaults;
+        var latencies = stats.latencies;
+
+        long totalQueriesValue = executionDurations.getN();
         String totalQueries = String.valueOf(totalQueriesValue);
 
         boolean recallAndNotOnTrain = recall && !testOnTrain;
@@ -127,6 +170,8 @@ public class StatsUtil {
         String totMinFaults = String.valueOf(threadStatsAndNotOnTrain ? minorFaults.getSum() : "");
         String totMajFaults = String.valueOf(threadStatsAndNotOnTrain ? majorFaults.getSum() : "");
         String kVal = String.valueOf(k);
+        String target = targetQps > 0 ? String.valueOf(targetQps) : "";
+        String throughput = String.valueOf(latencies.getTotalCount() / (wallDuration.toNanos() / 1_000_000_000d));
         String[] csvStatLine = new String[]{
                 indexDescriptions,
                 totalDuration,
@@ -143,6 +188,16 @@ public class StatsUtil {
                 maxMajFaults,
                 totMinFaults,
                 totMajFaults,
+                target,
+                throughput,
+                String.valueOf(latencies.getValueAtPercentile(50)),
+                String.valueOf(latencies.getValueAtPercentile(99)),
+                String.valueOf(latencies.getValueAtPercentile(99.9)),
+                String.valueOf(latencies.getValueAtPercentile(99.99)),
+                cacheStats != null ? String.valueOf(cacheStats.hits()) : "",
+                cacheStats != null ? String.valueOf(cacheStats.misses()) : "",
+                cacheStats != null ? String.valueOf(cacheStats.hitRate()) : "",
+                cacheStats != null ? String.valueOf(cacheStats.bytes()) : "",
                 "",
                 ""
         };
@@ -153,7 +208,9 @@ public class StatsUtil {
             String fileName, String indexDescriptions,
             Index.Builder.BuildSummary summary, String size
     ){
+        // segment flushes run concurrently within the build phase, they are only listed
         var totalTime = summary.phases().stream()
+                .filter(phase -> phase.description() != Index.Builder.Phase.flush)
                 .map(Index.Builder.BuildPhase::duration)
                 .reduce(Duration.ZERO, Duration::plus);
 
@@ -212,6 +269,88 @@ public class StatsUtil {
         initStatsCsv(queryHeader, STR."query-\{fileName}");
     }
 
+    public static void initMixedCsv(String fileName){
+        initStatsCsv(mixedHeader, STR."mixed-\{fileName}");
+    }
+
+    /**
+     * Appends the writes and queries of one interval of a mixed workload, and the recall measured at its end.
+     */
+    public static void appendToMixedCsv(
+            String fileName, String indexDescription,
+            Duration elapsed, Duration interval,
+            int liveVectors, long inserts, long deletes,
+            Histogram latencies, double recall
+    ){
+        var seconds = interval.toNanos() / 1_000_000_000d;
+        String[] csvStatLine = new String[]{
+                indexDescription,
+                String.valueOf(elapsed.toSeconds()),
+                String.valueOf(liveVectors),
+                String.valueOf(inserts),
+                String.valueOf(deletes),
+                String.valueOf((inserts + deletes) / seconds),
+                String.valueOf(latencies.getTotalCount()),
+                String.valueOf(latencies.getTotalCount() / seconds),
+                String.valueOf(latencies.getValueAtPercentile(50)),
+                String.valueOf(latencies.getValueAtPercentile(99)),
+                String.valueOf(latencies.getValueAtPercentile(99.9)),
+                Double.isNaN(recall) ? "" : String.valueOf(recall),
+                "",
+                ""
+        };
+        appendRamAndAvailableMemoryLines(csvStatLine, STR."mixed-\{fileName}");
+    }
+
+    public static void initParetoCsv(String fileName){
+        initStatsCsv(paretoHeader, STR."pareto-\{fileName}");
+    }
+
+    /**
+     * Appends the recall/throughput points of a sweep over one index, ordered by k and recall,
+     * flagging the ones that no other point with the same k beats on both recall and throughput.
+     */
+    public static void appendToParetoCsv(String fileName, List<QueryResult> results) {
+        var sorted = results.stream()
+                .sorted(Comparator.comparingInt(QueryResult::k)
+                        .thenComparingDouble(QueryResult::recall)
+                        .thenComparingDouble(QueryResult::throughput))
+                .toList();
+        var optimal = paretoOptimal(sorted);
+        File csvOutputFile = new File(STR."\{STATS_DIR}pareto-\{fileName}.csv");
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(csvOutputFile, true))) {
+            for (int i = 0; i < sorted.size(); i++) {
+                var result = sorted.get(i);
+                bw.append(convertToCSV(new String[]{
+                        result.description(),
+                        String.valueOf(result.k()),
+                        String.valueOf(result.recall()),
+                        String.valueOf(result.throughput()),
+                        String.valueOf(optimal[i])
+                }));
+                bw.newLine();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * @return whether each result is Pareto optimal among the results of the same {@code k}: no other one has
+     *     both a recall and a throughput at least as high, with one of them higher. Equal results are all optimal.
+     */
+    public static boolean[] paretoOptimal(List<QueryResult> results) {
+        var optimal = new boolean[results.size()];
+        for (int i = 0; i < results.size(); i++) {
+            var result = results.get(i);
+            optimal[i] = results.stream().noneMatch(other -> other.k() == result.k()
+                    && other.recall() >= result.recall()
+                    && other.throughput() >= result.throughput()
+                    && (other.recall() > result.recall() || other.throughput() > result.throughput()));
+        }
+        return optimal;
+    }
+
     public static void initBuildStatsCsv(String fileName){
         initStatsCsv(buildHeader, STR."build-\{fileName}");
     }
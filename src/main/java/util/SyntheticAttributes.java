@@ -0,0 +1,53 @@
+package util;
+
+import com.google.common.base.Preconditions;
+
+import java.util.function.IntPredicate;
+
+/**
+ * Synthetic attribute of every base vector, which filtered searches select a given share of the vectors with.
+ * The attributes are spread uniformly and independently of the vectors, by hashing the ordinal,
+ * so that any index can compute them instead of storing them, and a filter of selectivity {@code s%}
+ * accepts {@code s%} of any region of the vector space.
+ */
+public final class SyntheticAttributes {
+
+    /**
+     * Attributes range from 0 (inclusive) to this value (exclusive), so that selectivities are multiples of 0.01%.
+     */
+    public static final int RANGE = 10_000;
+
+    private SyntheticAttributes() {}
+
+    public static int of(int ordinal) {
+        // murmur3 finalizer, so that consecutive ordinals get unrelated attributes
+        int h = ordinal;
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return Math.floorMod(h, RANGE);
+    }
+
+    /**
+     * @param selectivity percentage of the vectors accepted by the filter
+     * @return the bound that the attributes of the accepted vectors are lower than
+     */
+    public static int upperBound(float selectivity) {
+        var bound = Math.round(selectivity * RANGE / 100);
+        // below 0.005% no attribute would be accepted
+        Preconditions.checkArgument(
+                bound > 0 && selectivity <= 100,
+                "selectivity must be in [%s, 100], got %s", 100f / RANGE, selectivity);
+        return bound;
+    }
+
+    /**
+     * @return whether the base vector of an ordinal is accepted by the filter of {@code selectivity}
+     */
+    public static IntPredicate filter(float selectivity) {
+        var bound = upperBound(selectivity);
+        return ordinal -> of(ordinal) < bound;
+    }
+}
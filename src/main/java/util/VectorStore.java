@@ -0,0 +1,121 @@
+package util;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Fixed-size float vectors stored in one contiguous off-heap {@link MemorySegment},
+ * either allocated in native memory or memory-mapped from a little-endian {@code .fvecs} file
+ * (where every record is the dimension as an int followed by that many floats).
+ *
+ * Compared to a {@code float[][]}, there is no object header and pointer chase per vector,
+ * the GC never scans the data, and the same store can back both the Lucene and the JVector providers.
+ * The memory is released by the GC once the store is no longer reachable.
+ */
+public final class VectorStore {
+    public static final ValueLayout.OfInt INT_LE = ValueLayout.JAVA_INT.withOrder(ByteOrder.LITTLE_ENDIAN);
+    public static final ValueLayout.OfFloat FLOAT_LE = ValueLayout.JAVA_FLOAT.withOrder(ByteOrder.LITTLE_ENDIAN);
+    private static final long ALIGNMENT = 64;
+
+    private final MemorySegment segment;
+    private final int size;
+    private final int dimension;
+    private final long offset;
+    private final long stride;
+
+    private VectorStore(MemorySegment segment, int size, int dimension, long offset, long stride) {
+        this.segment = segment;
+        this.size = size;
+        this.dimension = dimension;
+        this.offset = offset;
+        this.stride = stride;
+    }
+
+    public static VectorStore allocate(int size, int dimension) {
+        long stride = (long) dimension * Float.BYTES;
+        var segment = Arena.ofAuto().allocate(size * stride, ALIGNMENT);
+        return new VectorStore(segment, size, dimension, 0, stride);
+    }
+
+    public static VectorStore copyOf(float[][] vectors) {
+        var store = allocate(vectors.length, vectors[0].length);
+        for (int i = 0; i < vectors.length; i++) {
+            store.set(i, vectors[i]);
+        }
+        return store;
+    }
+
+    /**
+     * Maps an {@code .fvecs} file read-only, nothing is loaded on heap.
+     */
+    public static VectorStore map(Path path) throws IOException {
+        try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            var segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size(), Arena.ofAuto());
+            int dimension = segment.get(INT_LE, 0);
+            long stride = Integer.BYTES + (long) dimension * Float.BYTES;
+            int size = Math.toIntExact(segment.byteSize() / stride);
+            return new VectorStore(segment, size, dimension, Integer.BYTES, stride);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int dimension() {
+        return dimension;
+    }
+
+    public float[] get(int ord) {
+        var vector = new float[dimension];
+        get(ord, vector);
+        return vector;
+    }
+
+    public void get(int ord, float[] dest) {
+        MemorySegment.copy(segment, FLOAT_LE, offsetOf(ord), dest, 0, dimension);
+    }
+
+    public void set(int ord, float[] src) {
+        MemorySegment.copy(src, 0, segment, FLOAT_LE, offsetOf(ord), dimension);
+    }
+
+    /**
+     * Zero-copy view of a single vector.
+     */
+    public MemorySegment segment(int ord) {
+        return segment.asSlice(offsetOf(ord), (long) dimension * Float.BYTES);
+    }
+
+    /**
+     * Copies {@code count} consecutive vectors from ordinal {@code from} to ordinal {@code to}, the ranges may overlap.
+     */
+    public void move(int from, int to, int count) {
+        MemorySegment.copy(segment, offsetOf(from), segment, offsetOf(to), count * stride);
+    }
+
+    /**
+     * View of the first {@code size} vectors, sharing the same memory.
+     */
+    public VectorStore head(int size) {
+        return new VectorStore(segment, size, dimension, offset, stride);
+    }
+
+    public float[][] toArray() {
+        var vectors = new float[size][];
+        for (int i = 0; i < size; i++) {
+            vectors[i] = get(i);
+        }
+        return vectors;
+    }
+
+    private long offsetOf(int ord) {
+        return offset + ord * stride;
+    }
+}
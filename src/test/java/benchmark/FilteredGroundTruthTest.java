@@ -0,0 +1,64 @@
+package benchmark;
+
+import index.Index;
+import io.github.jbellis.jvector.vector.VectorizationProvider;
+import io.github.jbellis.jvector.vector.types.VectorFloat;
+import jvector.DataSetJVector;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import util.DataSetVector;
+import util.GroundTruth;
+import util.SyntheticAttributes;
+
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+class FilteredGroundTruthTest {
+
+    private static final int K = 5;
+    private static final float SELECTIVITY = 50;
+
+    /**
+     * Two JVector datasets of one process, with the same filter and k, must not share their filtered ground truth.
+     */
+    @Test
+    void datasetsWithTheSameFilterKeepTheirOwnGroundTruth() throws Exception {
+        var first = dataset("first.hdf5", 1, 100, 5);
+        var second = dataset("second.hdf5", 2, 200, 8);
+        var filter = new Index.Querier.Filter(
+                "selectivity:" + SELECTIVITY, SyntheticAttributes.filter(SELECTIVITY));
+
+        var firstGroundTruths = QueryBench.filteredGroundTruths(first, first.queryVectors, K, filter, 1);
+        var secondGroundTruths = QueryBench.filteredGroundTruths(second, second.queryVectors, K, filter, 1);
+
+        assertExact(first, firstGroundTruths, filter);
+        assertExact(second, secondGroundTruths, filter);
+    }
+
+    private static void assertExact(DataSetJVector dataset, int[][] groundTruths, Index.Querier.Filter filter)
+            throws Exception {
+        Assertions.assertEquals(dataset.queryVectors.size(), groundTruths.length);
+        for (int q = 0; q < groundTruths.length; q++) {
+            Assertions.assertArrayEquals(
+                    GroundTruth.exact(dataset, dataset.queryVectors.get(q), K, filter.accepts()), groundTruths[q]);
+        }
+    }
+
+    private static DataSetJVector dataset(String name, long seed, int baseSize, int querySize) {
+        var random = new Random(seed);
+        var base = vectors(random, baseSize);
+        var queries = vectors(random, querySize);
+        List<Set<Integer>> groundTruth = IntStream.range(0, querySize).mapToObj(q -> Set.of(0)).toList();
+        return new DataSetJVector(name, DataSetVector.SimilarityFunction.EUCLIDEAN, base, queries, groundTruth);
+    }
+
+    private static List<VectorFloat<?>> vectors(Random random, int count) {
+        var vectorTypeSupport = VectorizationProvider.getInstance().getVectorTypeSupport();
+        return IntStream.range(0, count)
+                .<VectorFloat<?>>mapToObj(i -> vectorTypeSupport.createFloatVector(
+                        new float[]{random.nextFloat(), random.nextFloat(), random.nextFloat()}))
+                .toList();
+    }
+}
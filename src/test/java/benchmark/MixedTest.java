@@ -0,0 +1,34 @@
+package benchmark;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import util.Config;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static util.TestUtil.*;
+
+class MixedTest {
+
+    public static final String YML_CONF_PATTERN = Optional.ofNullable(System.getenv("MIXED_YAML_LIST"))
+            .orElse("mixed-jvector-glove.yml");
+    public static final List<Config.QuerySpec> MIXED_SPEC_LOAD = new ArrayList<>();
+
+    @BeforeAll
+    static void setUp() throws IOException {
+        loadConfigs(MIXED_SPEC_LOAD, Config.QuerySpec::load, YML_CONF_PATTERN);
+    }
+
+    @Test
+    void testMixed() {
+        MIXED_SPEC_LOAD.forEach(
+                spec -> Assertions.assertDoesNotThrow(
+                        () -> MixedBench.run(spec, datasetPath, indexesPath)
+                )
+        );
+    }
+}
@@ -0,0 +1,34 @@
+package benchmark;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import util.Config;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static util.TestUtil.*;
+
+class SweepTest {
+
+    public static final String YML_CONF_PATTERN = Optional.ofNullable(System.getenv("SWEEP_YAML_LIST"))
+            .orElse("sweep-jvector-glove.yml");
+    public static final List<Config.SweepSpec> SWEEP_SPEC_LOAD = new ArrayList<>();
+
+    @BeforeAll
+    static void setUp() throws IOException {
+        loadConfigs(SWEEP_SPEC_LOAD, Config.SweepSpec::load, YML_CONF_PATTERN);
+    }
+
+    @Test
+    void testSweep() {
+        SWEEP_SPEC_LOAD.forEach(
+                spec -> Assertions.assertDoesNotThrow(
+                        () -> SweepBench.sweep(spec, datasetPath, indexesPath, reportsPath)
+                )
+        );
+    }
+}
@@ -0,0 +1,60 @@
+package util;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+class StatsUtilTest {
+
+    @Test
+    void dominatedResultIsNotOptimal() {
+        var optimal = StatsUtil.paretoOptimal(List.of(
+                result(10, 0.9, 1000),
+                result(10, 0.8, 900)));
+
+        Assertions.assertArrayEquals(new boolean[]{true, false}, optimal);
+    }
+
+    @Test
+    void tradeOffsAreAllOptimal() {
+        var optimal = StatsUtil.paretoOptimal(List.of(
+                result(10, 0.8, 2000),
+                result(10, 0.9, 1000),
+                result(10, 0.99, 500)));
+
+        Assertions.assertArrayEquals(new boolean[]{true, true, true}, optimal);
+    }
+
+    @Test
+    void higherOnOneAxisAndEqualOnTheOtherDominates() {
+        var optimal = StatsUtil.paretoOptimal(List.of(
+                result(10, 0.9, 1000),
+                result(10, 0.9, 1200),
+                result(10, 0.95, 1200)));
+
+        Assertions.assertArrayEquals(new boolean[]{false, false, true}, optimal);
+    }
+
+    @Test
+    void equalResultsAreAllOptimal() {
+        var optimal = StatsUtil.paretoOptimal(List.of(
+                result(10, 0.9, 1000),
+                result(10, 0.9, 1000)));
+
+        Assertions.assertArrayEquals(new boolean[]{true, true}, optimal);
+    }
+
+    @Test
+    void resultsOfAnotherKDoNotCompete() {
+        var optimal = StatsUtil.paretoOptimal(List.of(
+                result(10, 0.8, 900),
+                result(100, 0.9, 1000)));
+
+        Assertions.assertArrayEquals(new boolean[]{true, true}, optimal);
+    }
+
+    private static QueryResult result(int k, double recall, double throughput) {
+        return new QueryResult(STR."k:\{k}-recall:\{recall}-throughput:\{throughput}", k, recall, throughput);
+    }
+}
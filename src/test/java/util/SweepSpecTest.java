@@ -0,0 +1,81 @@
+package util;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+class SweepSpecTest {
+
+    @Test
+    void singleValueIsKept() {
+        Assertions.assertEquals(List.of("100"), beamWidths(100));
+        Assertions.assertEquals(List.of("1.2"), beamWidths(1.2));
+        Assertions.assertEquals(List.of("none"), beamWidths("none"));
+    }
+
+    @Test
+    void listIsExpanded() {
+        Assertions.assertEquals(List.of("16", "32", "64"), beamWidths(List.of(16, 32, 64)));
+    }
+
+    @Test
+    void rangeIsInclusive() {
+        Assertions.assertEquals(List.of("1", "2", "3"), beamWidths("1..3"));
+        Assertions.assertEquals(List.of("10", "20", "30", "40"), beamWidths("10..40:10"));
+        Assertions.assertEquals(List.of("-1", "0", "1"), beamWidths("-1..1"));
+        Assertions.assertEquals(List.of("5"), beamWidths("5..5"));
+    }
+
+    @Test
+    void rangeStopsBeforeOvershootingItsEnd() {
+        Assertions.assertEquals(List.of("10", "20", "30"), beamWidths("10..35:10"));
+    }
+
+    @Test
+    void invalidRangeIsRejected() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> beamWidths("5..1"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> beamWidths("1..5:0"));
+    }
+
+    @Test
+    void lastParameterVariesTheFastest() {
+        var build = new LinkedHashMap<String, Object>();
+        build.put("M", List.of(8, 16));
+        build.put("beamWidth", 100);
+        build.put("alpha", List.of(1.0, 1.2));
+
+        var builds = spec(build, Map.of("numCandidates", 10), 10).buildSpecs().stream()
+                .map(Config.BuildSpec::build)
+                .toList();
+
+        Assertions.assertEquals(List.of(
+                Map.of("M", "8", "beamWidth", "100", "alpha", "1.0"),
+                Map.of("M", "8", "beamWidth", "100", "alpha", "1.2"),
+                Map.of("M", "16", "beamWidth", "100", "alpha", "1.0"),
+                Map.of("M", "16", "beamWidth", "100", "alpha", "1.2")
+        ), builds);
+    }
+
+    @Test
+    void queriesRunForEveryK() {
+        var spec = spec(Map.of("M", 16), Map.of("numCandidates", "10..20:10"), List.of(10, 100));
+        var queries = spec.querySpecs(spec.buildSpecs().getFirst()).stream()
+                .map(query -> query.k() + "/" + query.query().get("numCandidates"))
+                .toList();
+
+        Assertions.assertEquals(List.of("10/10", "10/20", "100/10", "100/20"), queries);
+    }
+
+    private static List<String> beamWidths(Object value) {
+        return spec(Map.of("beamWidth", value), Map.of("numCandidates", 10), 10).buildSpecs().stream()
+                .map(build -> build.build().get("beamWidth"))
+                .toList();
+    }
+
+    private static Config.SweepSpec spec(Map<String, Object> build, Map<String, Object> query, Object k) {
+        return new Config.SweepSpec("dataset", "jvector", null, build, query, k, Map.of());
+    }
+}
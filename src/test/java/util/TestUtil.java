@@ -11,6 +11,7 @@ import java.nio.file.Paths;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -79,11 +80,23 @@ public class TestUtil {
     }
     
     public static void loadConfigs(Set<Config.BuildSpec> BUILD_SPEC_LOAD, Set<Config.QuerySpec> QUERY_SPEC_LOAD, String YML_CONF_PATTERN) throws IOException {
+        loadConfigs(BUILD_SPEC_LOAD, Config.BuildSpec::load, YML_CONF_PATTERN);
+        loadConfigs(QUERY_SPEC_LOAD, Config.QuerySpec::load, YML_CONF_PATTERN);
+    }
+
+    public interface SpecLoader<T> {
+        T load(String file) throws Exception;
+    }
+
+    /**
+     * Adds the spec of every yml file of the {@code conf} folder matching the pattern,
+     * skipping the files that fail to load.
+     */
+    public static <T> void loadConfigs(Collection<T> specs, SpecLoader<T> loader, String YML_CONF_PATTERN) throws IOException {
         try (DirectoryStream<Path> stream = Files.newDirectoryStream(Path.of("conf/"), YML_CONF_PATTERN)) {
             for (Path yml: stream) {
                 try {
-                    BUILD_SPEC_LOAD.add(Config.BuildSpec.load(yml.getFileName().toString()));
-                    QUERY_SPEC_LOAD.add(Config.QuerySpec.load(yml.getFileName().toString()));
+                    specs.add(loader.load(yml.getFileName().toString()));
                 } catch (Exception e){
                     System.out.println(STR."unexpected exception during the \{yml} config load...");
                     System.out.println(e.getMessage());